@@ -6,6 +6,7 @@ plugins {
     `java-library`
     `maven-publish`
     id("io.github.goooler.shadow") version "8.1.5" // Use fork until shadow has updated to Java 21
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 repositories {
@@ -43,10 +44,12 @@ dependencies {
     implementation("org.jdbi:jdbi3-postgres:3.49.1")
     implementation("com.zaxxer:HikariCP:6.2.1")
     implementation("org.postgresql:postgresql:42.7.5")
+    // Benchmarks
+    "jmh"("io.papermc.paper:paper-api:1.21.7-R0.1-SNAPSHOT")
 }
 
 group = "de.erethon"
-version = "1.5.17"
+version = "1.5.18"
 description = "Bedrock"
 java.sourceCompatibility = JavaVersion.VERSION_21
 
@@ -85,6 +88,96 @@ tasks {
     }
 }
 
+// Containers with many fields for the storage benchmarks, which would be unreadable as handwritten sources
+val generateBenchmarkContainers by tasks.registering {
+    val outputDir = layout.buildDirectory.dir("generated/sources/benchmarkContainers/java")
+    outputs.dir(outputDir)
+    doLast {
+        val dir = outputDir.get().asFile.resolve("de/erethon/bedrock/jmh")
+        dir.mkdirs()
+        val counts = listOf(10, 100, 1000)
+        for (count in counts) {
+            dir.resolve("Fields${count}Container.java").writeText(buildString {
+                appendLine("package de.erethon.bedrock.jmh;")
+                appendLine()
+                appendLine("import de.erethon.bedrock.config.ConfigFormat;")
+                appendLine("import de.erethon.bedrock.config.storage.StorageData;")
+                appendLine()
+                appendLine("import java.io.File;")
+                appendLine()
+                appendLine("public class Fields${count}Container extends BenchmarkContainer {")
+                appendLine()
+                for (i in 0 until count) {
+                    val declaration = when (i % 5) {
+                        0 -> "int field$i = $i;"
+                        1 -> "long field$i = ${i}L;"
+                        2 -> "double field$i = $i.5;"
+                        3 -> "String field$i = \"value$i\";"
+                        else -> "boolean field$i = true;"
+                    }
+                    appendLine("    @StorageData(path = \"section${i / 10}.field$i\")")
+                    appendLine("    $declaration")
+                }
+                appendLine()
+                appendLine("    public Fields${count}Container(File file, ConfigFormat format) {")
+                appendLine("        super(file, format);")
+                appendLine("        defaultLoadProcess();")
+                appendLine("    }")
+                appendLine()
+                appendLine("    @Override")
+                appendLine("    public void mutate(int seed) {")
+                for (i in 0 until count) {
+                    val statement = when (i % 5) {
+                        0 -> "field$i = seed + $i;"
+                        1 -> "field$i = seed + ${i}L;"
+                        2 -> "field$i = seed + $i.5;"
+                        3 -> "field$i = \"value\" + (seed + $i);"
+                        else -> "field$i = (seed & 1) == 0;"
+                    }
+                    appendLine("        $statement")
+                }
+                appendLine("    }")
+                appendLine("}")
+            })
+        }
+        dir.resolve("GeneratedContainers.java").writeText(buildString {
+            appendLine("package de.erethon.bedrock.jmh;")
+            appendLine()
+            appendLine("import de.erethon.bedrock.config.ConfigFormat;")
+            appendLine()
+            appendLine("import java.io.File;")
+            appendLine()
+            appendLine("public final class GeneratedContainers {")
+            appendLine()
+            appendLine("    public static BenchmarkContainer create(int fields, File file, ConfigFormat format) {")
+            appendLine("        return switch (fields) {")
+            for (count in counts) {
+                appendLine("            case $count -> new Fields${count}Container(file, format);")
+            }
+            appendLine("            default -> throw new IllegalArgumentException(\"No container with \" + fields + \" fields\");")
+            appendLine("        };")
+            appendLine("    }")
+            appendLine("}")
+        })
+    }
+}
+
+sourceSets.named("jmh") {
+    java.srcDir(generateBenchmarkContainers)
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    benchmarkMode.add("thrpt")
+    timeUnit.set("s")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    profilers.add("gc") // allocation rate per operation
+    resultFormat.set("JSON")
+    jvmArgs.add("--enable-preview")
+}
+
 tasks.withType<JavaCompile>() {
     options.encoding = "UTF-8"
     options.release.set(21)
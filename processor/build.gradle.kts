@@ -0,0 +1,40 @@
+plugins {
+    `java-library`
+    `maven-publish`
+}
+
+repositories {
+    mavenCentral()
+}
+
+group = "de.erethon"
+version = rootProject.version
+description = "Bedrock annotation processor"
+java.sourceCompatibility = JavaVersion.VERSION_21
+
+tasks.withType<JavaCompile>() {
+    options.encoding = "UTF-8"
+    options.release.set(21)
+}
+
+publishing {
+    repositories {
+        maven {
+            name = "erethon"
+            url = uri("https://repo.erethon.de/snapshots/")
+            credentials(PasswordCredentials::class)
+            authentication {
+                create<BasicAuthentication>("basic")
+            }
+        }
+    }
+    publications {
+        create<MavenPublication>("maven") {
+            groupId = "${project.group}"
+            artifactId = "bedrock-processor"
+            version = "${project.version}"
+
+            from(components["java"])
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package de.erethon.bedrock.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a {@code StorageDataAccessor} for every class declaring {@code @StorageData} or
+ * {@code @AdditionalContainer} fields, and reports field declarations that can't be loaded.
+ * <br>
+ * The accessor holds the annotation values of the fields and a typed getter and setter per field, so the storage data
+ * system neither scans the class with reflection nor accesses its fields through it. Fields that are at least
+ * package-private are accessed directly, private fields through a {@link java.lang.invoke.VarHandle} that is looked up
+ * once when the accessor is initialized.
+ * <br>
+ * Local, anonymous and private classes, and classes with fields whose type is a private class, can't be named by the
+ * generated code, so no accessor is generated for them. They keep working through reflection.
+ * <br>
+ * Usage with Gradle:
+ *
+ * <blockquote><pre>
+ *     dependencies {
+ *         annotationProcessor("de.erethon:bedrock-processor:VERSION")
+ *     }
+ * </pre></blockquote>
+ *
+ * @since 1.5.18
+ */
+@SupportedAnnotationTypes({StorageDataProcessor.STORAGE_DATA, StorageDataProcessor.ADDITIONAL_CONTAINER})
+public class StorageDataProcessor extends AbstractProcessor {
+
+    static final String STORAGE_DATA = "de.erethon.bedrock.config.storage.StorageData";
+    static final String ADDITIONAL_CONTAINER = "de.erethon.bedrock.config.storage.AdditionalContainer";
+    static final String ACCESSOR = "de.erethon.bedrock.config.storage.StorageDataAccessor";
+    static final String SUFFIX = "_StorageData";
+
+    private Elements elements;
+    private Types types;
+    private Messager messager;
+    private Filer filer;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+        this.messager = processingEnv.getMessager();
+        this.filer = processingEnv.getFiler();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> annotatedTypes = new LinkedHashSet<>();
+        for (String name : List.of(STORAGE_DATA, ADDITIONAL_CONTAINER)) {
+            TypeElement annotation = elements.getTypeElement(name);
+            if (annotation == null) {
+                continue;
+            }
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.FIELD) {
+                    annotatedTypes.add((TypeElement) element.getEnclosingElement());
+                }
+            }
+        }
+        annotatedTypes.forEach(this::process);
+        return false;
+    }
+
+    private void process(TypeElement type) {
+        List<VariableElement> fields = new ArrayList<>();
+        List<VariableElement> containers = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (getAnnotation(field, STORAGE_DATA) != null) {
+                fields.add(field); // @StorageData wins like in the reflective scan
+            } else if (getAnnotation(field, ADDITIONAL_CONTAINER) != null) {
+                containers.add(field);
+            }
+        }
+        boolean valid = true;
+        for (VariableElement field : fields) {
+            valid &= validate(field);
+        }
+        if (!valid) {
+            return;
+        }
+        String inaccessible = findInaccessible(type, fields, containers);
+        if (inaccessible != null) {
+            messager.printMessage(Diagnostic.Kind.NOTE, "No storage data accessor generated, " + inaccessible + " can't be accessed", type);
+            return;
+        }
+        try {
+            write(type, fields, containers);
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Could not generate the storage data accessor: " + e.getMessage(), type);
+        }
+    }
+
+    /* validation */
+
+    private boolean validate(VariableElement field) {
+        AnnotationMirror annotation = getAnnotation(field, STORAGE_DATA);
+        if (annotation == null) {
+            return true;
+        }
+        TypeMirror type = field.asType();
+        if (field.getModifiers().contains(Modifier.FINAL) && isImmutable(type)) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Final @StorageData field of type " + type + " can't be loaded", field);
+            return false;
+        }
+        Map<String, AnnotationValue> values = getValues(annotation);
+        TypeMirror exactType = (TypeMirror) values.get("type").getValue();
+        if (!exactType.toString().endsWith("DefaultTypeClass") || type.getKind() != TypeKind.DECLARED) {
+            return true; // the type hints belong to the overridden type
+        }
+        List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+        TypeMirror keyHint = firstClass(values.get("keyTypes"));
+        TypeMirror valueHint = firstClass(values.get("valueTypes"));
+        if (isSubtype(type, "java.util.Map") && arguments.size() == 2) {
+            boolean valid = checkHint(field, "keyTypes", keyHint, arguments.get(0));
+            valid &= checkHint(field, "valueTypes", valueHint, arguments.get(1));
+            if (valid && isObject(keyHint) && arguments.get(0).getKind() == TypeKind.DECLARED
+                    && !isObject(arguments.get(0)) && !isType(arguments.get(0), "java.lang.String")) {
+                messager.printMessage(Diagnostic.Kind.WARNING, "Map keys of type " + arguments.get(0) + " are loaded as strings, specify keyTypes", field);
+            }
+            return valid;
+        } else if (isSubtype(type, "java.util.Collection") && arguments.size() == 1) {
+            return checkHint(field, "valueTypes", valueHint, arguments.get(0));
+        }
+        return true;
+    }
+
+    private boolean checkHint(VariableElement field, String name, TypeMirror hint, TypeMirror declared) {
+        if (isObject(hint) || declared.getKind() != TypeKind.DECLARED) {
+            return true; // no hint or a wildcard / type variable, which can't be checked
+        }
+        if (!types.isAssignable(types.erasure(hint), types.erasure(declared))) {
+            messager.printMessage(Diagnostic.Kind.ERROR, name + " " + hint + " doesn't match the declared type " + declared, field);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isImmutable(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return true;
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        Element element = types.asElement(type);
+        if (element.getKind() == ElementKind.ENUM || isType(type, "java.lang.String")) {
+            return true;
+        }
+        try {
+            types.unboxedType(type);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private String findInaccessible(TypeElement type, List<VariableElement> fields, List<VariableElement> containers) {
+        String inaccessible = findInaccessible(type, type);
+        if (inaccessible != null) {
+            return inaccessible;
+        }
+        for (List<VariableElement> list : List.of(fields, containers)) {
+            for (VariableElement field : list) {
+                inaccessible = findInaccessible(type, field.asType());
+                if (inaccessible != null) {
+                    return inaccessible + " of the field " + field.getSimpleName();
+                }
+            }
+        }
+        for (VariableElement field : fields) {
+            for (AnnotationValue value : getValues(getAnnotation(field, STORAGE_DATA)).values()) {
+                if (value.getValue() instanceof TypeMirror hint && (inaccessible = findInaccessible(type, hint)) != null) {
+                    return inaccessible + " used by the field " + field.getSimpleName();
+                } else if (value.getValue() instanceof List<?> list) {
+                    for (Object element : list) {
+                        if (((AnnotationValue) element).getValue() instanceof TypeMirror hint && (inaccessible = findInaccessible(type, hint)) != null) {
+                            return inaccessible + " used by the field " + field.getSimpleName();
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private String findInaccessible(TypeElement type, TypeMirror reference) {
+        TypeMirror erasure = types.erasure(reference);
+        while (erasure.getKind() == TypeKind.ARRAY) {
+            erasure = ((ArrayType) erasure).getComponentType();
+        }
+        if (erasure.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        return findInaccessible(type, (TypeElement) types.asElement(erasure));
+    }
+
+    private String findInaccessible(TypeElement type, TypeElement reference) {
+        PackageElement packageElement = elements.getPackageOf(type);
+        for (Element current = reference; current instanceof TypeElement typeElement; current = current.getEnclosingElement()) {
+            if (typeElement.getNestingKind() != NestingKind.TOP_LEVEL && typeElement.getNestingKind() != NestingKind.MEMBER) {
+                return "the local class " + typeElement.getSimpleName();
+            }
+            if (typeElement.getModifiers().contains(Modifier.PRIVATE)) {
+                return "the private class " + typeElement.getSimpleName();
+            }
+            if (typeElement.getModifiers().contains(Modifier.PROTECTED) && !elements.getPackageOf(typeElement).equals(packageElement)) {
+                return "the protected class " + typeElement.getSimpleName();
+            }
+        }
+        return null;
+    }
+
+    /* generation */
+
+    private void write(TypeElement type, List<VariableElement> fields, List<VariableElement> containers) throws IOException {
+        PackageElement packageElement = elements.getPackageOf(type);
+        String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(type).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + SUFFIX;
+        String typeName = types.erasure(type.asType()).toString();
+
+        List<VariableElement> privateFields = new ArrayList<>();
+        for (List<VariableElement> list : List.of(fields, containers)) {
+            for (VariableElement field : list) {
+                if (field.getModifiers().contains(Modifier.PRIVATE)) {
+                    privateFields.add(field);
+                }
+            }
+        }
+
+        JavaFileObject file = filer.createSourceFile(packageName.isEmpty() ? simpleName : packageName + "." + simpleName, type);
+        try (Writer writer = file.openWriter()) {
+            StringBuilder out = new StringBuilder();
+            if (!packageName.isEmpty()) {
+                out.append("package ").append(packageName).append(";\n\n");
+            }
+            out.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n");
+            out.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+            out.append("public final class ").append(simpleName).append(" implements ").append(ACCESSOR).append(" {\n\n");
+
+            for (VariableElement field : privateFields) {
+                out.append("    private static final java.lang.invoke.VarHandle ").append(handleName(field)).append(";\n");
+            }
+            if (!privateFields.isEmpty()) {
+                out.append("\n    static {\n");
+                out.append("        try {\n");
+                out.append("            java.lang.invoke.MethodHandles.Lookup lookup = java.lang.invoke.MethodHandles.privateLookupIn(")
+                        .append(typeName).append(".class, java.lang.invoke.MethodHandles.lookup());\n");
+                for (VariableElement field : privateFields) {
+                    boolean isStatic = field.getModifiers().contains(Modifier.STATIC);
+                    out.append("            ").append(handleName(field)).append(" = lookup.").append(isStatic ? "findStaticVarHandle(" : "findVarHandle(")
+                            .append(typeName).append(".class, \"").append(field.getSimpleName()).append("\", ")
+                            .append(types.erasure(field.asType())).append(".class);\n");
+                }
+                out.append("        } catch (ReflectiveOperationException e) {\n");
+                out.append("            throw new ExceptionInInitializerError(e);\n");
+                out.append("        }\n");
+                out.append("    }\n");
+            }
+            out.append("\n");
+
+            out.append("    private static final java.util.List<").append(ACCESSOR).append(".DataField> FIELDS = java.util.List.of(");
+            for (int i = 0; i < fields.size(); i++) {
+                out.append(i == 0 ? "\n" : ",\n");
+                writeDataField(out, typeName, fields.get(i));
+            }
+            out.append(");\n\n");
+
+            out.append("    private static final java.util.List<").append(ACCESSOR).append(".ContainerField> CONTAINERS = java.util.List.of(");
+            for (int i = 0; i < containers.size(); i++) {
+                out.append(i == 0 ? "\n" : ",\n");
+                writeContainerField(out, typeName, containers.get(i));
+            }
+            out.append(");\n\n");
+
+            out.append("    @Override\n");
+            out.append("    public java.util.List<").append(ACCESSOR).append(".DataField> getFields() {\n");
+            out.append("        return FIELDS;\n");
+            out.append("    }\n\n");
+            out.append("    @Override\n");
+            out.append("    public java.util.List<").append(ACCESSOR).append(".ContainerField> getAdditionalContainers() {\n");
+            out.append("        return CONTAINERS;\n");
+            out.append("    }\n");
+            out.append("}\n");
+            writer.write(out.toString());
+        }
+    }
+
+    private void writeDataField(StringBuilder out, String typeName, VariableElement field) {
+        boolean writable = !field.getModifiers().contains(Modifier.FINAL);
+        out.append("            new ").append(ACCESSOR).append(".DataField(\"").append(field.getSimpleName()).append("\", ")
+                .append(types.erasure(field.asType())).append(".class, ");
+        writeAnnotation(out, getAnnotation(field, STORAGE_DATA));
+        out.append(", ").append(writable).append(") {\n");
+        writeGetter(out, typeName, field);
+        if (writable) {
+            out.append("                @Override\n");
+            out.append("                public void set(Object container, Object value) {\n");
+            out.append("                    ").append(setter(typeName, field)).append(";\n");
+            out.append("                }\n");
+        }
+        out.append("            }");
+    }
+
+    private void writeContainerField(StringBuilder out, String typeName, VariableElement field) {
+        Object subPath = getValues(getAnnotation(field, ADDITIONAL_CONTAINER)).get("subPath").getValue();
+        out.append("            new ").append(ACCESSOR).append(".ContainerField(\"").append(field.getSimpleName()).append("\", ")
+                .append(elements.getConstantExpression(subPath)).append(") {\n");
+        writeGetter(out, typeName, field);
+        out.append("            }");
+    }
+
+    private void writeGetter(StringBuilder out, String typeName, VariableElement field) {
+        out.append("                @Override\n");
+        out.append("                public Object get(Object container) {\n");
+        out.append("                    return ").append(getter(typeName, field)).append(";\n");
+        out.append("                }\n");
+    }
+
+    private String getter(String typeName, VariableElement field) {
+        boolean isStatic = field.getModifiers().contains(Modifier.STATIC);
+        if (!field.getModifiers().contains(Modifier.PRIVATE)) {
+            return isStatic ? typeName + "." + field.getSimpleName() : "((" + typeName + ") container)." + field.getSimpleName();
+        }
+        String handle = handleName(field) + ".get(" + (isStatic ? "" : "(" + typeName + ") container") + ")";
+        return "(" + types.erasure(field.asType()) + ") " + handle;
+    }
+
+    private String setter(String typeName, VariableElement field) {
+        boolean isStatic = field.getModifiers().contains(Modifier.STATIC);
+        String value = "(" + types.erasure(field.asType()) + ") value";
+        if (!field.getModifiers().contains(Modifier.PRIVATE)) {
+            return (isStatic ? typeName + "." + field.getSimpleName() : "((" + typeName + ") container)." + field.getSimpleName()) + " = " + value;
+        }
+        return handleName(field) + ".set(" + (isStatic ? "" : "(" + typeName + ") container, ") + value + ")";
+    }
+
+    private static String handleName(VariableElement field) {
+        return "HANDLE_" + field.getSimpleName();
+    }
+
+    /**
+     * Writes an instance of the annotation with the values of the mirror, so it doesn't have to be read with reflection.
+     */
+    private void writeAnnotation(StringBuilder out, AnnotationMirror annotation) {
+        out.append("new ").append(STORAGE_DATA).append("() {\n");
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : elements.getElementValuesWithDefaults(annotation).entrySet()) {
+            ExecutableElement method = entry.getKey();
+            out.append("                @Override\n");
+            out.append("                public ").append(method.getReturnType()).append(" ").append(method.getSimpleName()).append("() {\n");
+            out.append("                    return ").append(constant(method.getReturnType(), entry.getValue())).append(";\n");
+            out.append("                }\n");
+        }
+        out.append("                @Override\n");
+        out.append("                public Class<? extends java.lang.annotation.Annotation> annotationType() {\n");
+        out.append("                    return ").append(STORAGE_DATA).append(".class;\n");
+        out.append("                }\n");
+        out.append("            }");
+    }
+
+    private String constant(TypeMirror type, AnnotationValue value) {
+        Object constant = value.getValue();
+        if (constant instanceof List<?> list) {
+            StringBuilder array = new StringBuilder("new ").append(types.erasure(type)).append(" {");
+            for (int i = 0; i < list.size(); i++) {
+                array.append(i == 0 ? "" : ", ").append(constant(((ArrayType) type).getComponentType(), (AnnotationValue) list.get(i)));
+            }
+            return array.append("}").toString();
+        } else if (constant instanceof TypeMirror typeMirror) {
+            return types.erasure(typeMirror) + ".class";
+        } else if (constant instanceof VariableElement enumConstant) {
+            return ((TypeElement) enumConstant.getEnclosingElement()).getQualifiedName() + "." + enumConstant.getSimpleName();
+        }
+        return elements.getConstantExpression(constant);
+    }
+
+    /* annotation values */
+
+    private static AnnotationMirror getAnnotation(Element element, String name) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(name)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private Map<String, AnnotationValue> getValues(AnnotationMirror annotation) {
+        Map<String, AnnotationValue> values = new LinkedHashMap<>();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : elements.getElementValuesWithDefaults(annotation).entrySet()) {
+            values.put(entry.getKey().getSimpleName().toString(), entry.getValue());
+        }
+        return values;
+    }
+
+    private static TypeMirror firstClass(AnnotationValue value) {
+        if (value == null || !(value.getValue() instanceof List<?> list) || list.isEmpty()) {
+            return null;
+        }
+        return (TypeMirror) ((AnnotationValue) list.get(0)).getValue();
+    }
+
+    private boolean isSubtype(TypeMirror type, String name) {
+        TypeElement element = elements.getTypeElement(name);
+        return element != null && types.isAssignable(types.erasure(type), types.erasure(element.asType()));
+    }
+
+    private boolean isType(TypeMirror type, String name) {
+        TypeElement element = elements.getTypeElement(name);
+        return element != null && types.isSameType(types.erasure(type), types.erasure(element.asType()));
+    }
+
+    private boolean isObject(TypeMirror type) {
+        return type == null || isType(type, "java.lang.Object");
+    }
+}
@@ -3,3 +3,5 @@
  */
 
 rootProject.name = "bedrock"
+
+include("processor")
@@ -0,0 +1,25 @@
+package de.erethon.bedrock.jmh;
+
+import de.erethon.bedrock.config.ConfigFormat;
+import de.erethon.bedrock.config.storage.StorageDataContainer;
+
+import java.io.File;
+
+/**
+ * Base class of the containers used by the storage benchmarks.
+ *
+ * @since 1.5.18
+ */
+public abstract class BenchmarkContainer extends StorageDataContainer {
+
+    public BenchmarkContainer(File file, ConfigFormat format) {
+        super(file, 1, format);
+    }
+
+    /**
+     * Changes the value of every field, so that all of them have to be saved.
+     *
+     * @param seed the value to derive the new values from
+     */
+    public abstract void mutate(int seed);
+}
@@ -0,0 +1,37 @@
+package de.erethon.bedrock.jmh;
+
+import de.erethon.bedrock.config.ConfigFormat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * @since 1.5.18
+ */
+final class BenchmarkFiles {
+
+    private BenchmarkFiles() {
+    }
+
+    static ConfigFormat format(String name) {
+        return switch (name) {
+            case "YAML" -> ConfigFormat.YAML;
+            case "BINARY" -> ConfigFormat.BINARY;
+            default -> throw new IllegalArgumentException("Unknown format " + name);
+        };
+    }
+
+    static void delete(Path directory) throws IOException {
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(directory)) {
+            for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package de.erethon.bedrock.jmh;
+
+import de.erethon.bedrock.config.ConfigFormat;
+import de.erethon.bedrock.config.storage.StorageData;
+import org.bukkit.Location;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A container with nested maps and lists as well as {@link Location} and {@link UUID} values.
+ * <br>
+ * The locations have no world, so that neither saving nor loading needs a running server.
+ *
+ * @since 1.5.18
+ */
+public class NestedContainer extends BenchmarkContainer {
+
+    private final int size;
+
+    @StorageData(keyTypes = String.class, valueTypes = {List.class, Integer.class})
+    Map<String, List<Integer>> scores = new HashMap<>();
+
+    @StorageData(keyTypes = {UUID.class, String.class}, valueTypes = {Map.class, Double.class})
+    Map<UUID, Map<String, Double>> stats = new HashMap<>();
+
+    @StorageData(valueTypes = Location.class)
+    List<Location> waypoints = new ArrayList<>();
+
+    @StorageData
+    UUID owner = new UUID(0, 0);
+
+    @StorageData
+    Location home = new Location(null, 0, 64, 0);
+
+    /**
+     * @param size the amount of entries per map and list
+     */
+    public NestedContainer(File file, ConfigFormat format, int size) {
+        super(file, format);
+        this.size = size;
+        defaultLoadProcess();
+    }
+
+    @Override
+    public void mutate(int seed) {
+        scores.clear();
+        stats.clear();
+        waypoints.clear();
+        for (int i = 0; i < size; i++) {
+            List<Integer> values = new ArrayList<>(size);
+            Map<String, Double> stat = new HashMap<>();
+            for (int j = 0; j < size; j++) {
+                values.add(seed + j);
+                stat.put("stat" + j, seed + j + 0.5);
+            }
+            scores.put("player" + i, values);
+            stats.put(new UUID(seed, i), stat);
+            waypoints.add(new Location(null, seed + i, 64, i, i, 0));
+        }
+        owner = new UUID(seed, seed);
+        home = new Location(null, seed, 64, seed);
+    }
+}
@@ -0,0 +1,93 @@
+package de.erethon.bedrock.jmh;
+
+import de.erethon.bedrock.config.ConfigFormat;
+import de.erethon.bedrock.config.storage.StorageDataTranslator;
+import de.erethon.bedrock.config.storage.StorageDataTranslators;
+import org.bukkit.Location;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+/**
+ * Measures loading and saving of nested maps and lists as well as the {@link Location} and {@link UUID} translators.
+ *
+ * @since 1.5.18
+ */
+@State(Scope.Thread)
+public class NestedStorageDataBenchmark {
+
+    @Param({"10", "50"})
+    int size;
+
+    @Param({"YAML", "BINARY"})
+    String format;
+
+    private Path directory;
+    private File file;
+    private ConfigFormat configFormat;
+    private NestedContainer container;
+    private int seed;
+
+    private StorageDataTranslator<?> uuidTranslator;
+    private StorageDataTranslator<?> locationTranslator;
+    private UUID uuid;
+    private Location location;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        configFormat = BenchmarkFiles.format(format);
+        directory = Files.createTempDirectory("bedrock-jmh");
+        file = directory.resolve("nested." + configFormat.getFileExtension()).toFile();
+        container = new NestedContainer(file, configFormat, size);
+        container.mutate(seed);
+        container.saveData();
+
+        uuidTranslator = StorageDataTranslators.get(UUID.class);
+        locationTranslator = StorageDataTranslators.get(Location.class);
+        uuid = UUID.randomUUID();
+        location = new Location(null, 12.5, 64, -8.25, 90, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.delete(directory);
+    }
+
+    @Benchmark
+    public NestedContainer load() {
+        return new NestedContainer(file, configFormat, size);
+    }
+
+    @Benchmark
+    public boolean save() {
+        container.mutate(++seed);
+        return container.saveDataIfChanged();
+    }
+
+    @Benchmark
+    public NestedContainer roundTrip() {
+        container.mutate(++seed);
+        container.saveData();
+        return new NestedContainer(file, configFormat, size);
+    }
+
+    @Benchmark
+    public Object uuidRoundTrip() {
+        return uuidTranslator.deserialize(uuidTranslator.serialize(uuid, UUID.class), UUID.class);
+    }
+
+    @Benchmark
+    public Object locationRoundTrip() {
+        return locationTranslator.deserialize(locationTranslator.serialize(location, Location.class), Location.class);
+    }
+}
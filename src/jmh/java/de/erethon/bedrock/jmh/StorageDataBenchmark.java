@@ -0,0 +1,71 @@
+package de.erethon.bedrock.jmh;
+
+import de.erethon.bedrock.config.ConfigFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Measures loading and saving of containers with 10, 100 and 1000 flat fields.
+ * <br>
+ * Run with {@code ./gradlew jmh}, the GC profiler reports the allocation rate next to the throughput.
+ *
+ * @since 1.5.18
+ */
+@State(Scope.Thread)
+public class StorageDataBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int fields;
+
+    @Param({"YAML", "BINARY"})
+    String format;
+
+    private Path directory;
+    private File file;
+    private ConfigFormat configFormat;
+    private BenchmarkContainer container;
+    private int seed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        configFormat = BenchmarkFiles.format(format);
+        directory = Files.createTempDirectory("bedrock-jmh");
+        file = directory.resolve("container." + configFormat.getFileExtension()).toFile();
+        container = GeneratedContainers.create(fields, file, configFormat);
+        container.mutate(seed);
+        container.saveData();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.delete(directory);
+    }
+
+    @Benchmark
+    public BenchmarkContainer load() {
+        return GeneratedContainers.create(fields, file, configFormat);
+    }
+
+    @Benchmark
+    public boolean save() {
+        container.mutate(++seed);
+        return container.saveDataIfChanged();
+    }
+
+    @Benchmark
+    public BenchmarkContainer roundTrip() {
+        container.mutate(++seed);
+        container.saveData();
+        return GeneratedContainers.create(fields, file, configFormat);
+    }
+}
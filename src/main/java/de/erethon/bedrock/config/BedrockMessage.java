@@ -24,7 +24,19 @@ public enum BedrockMessage implements Message {
     HOVER_USAGE("hover.usage"),
 
     INFO_COMMANDS("info.commands"),
-    INFO_HEADER("info.header");
+    INFO_HEADER("info.header"),
+
+    USER_CACHE_BATCH_LOAD("userCache.batchLoad"),
+    USER_CACHE_CACHED("userCache.cached"),
+    USER_CACHE_DESCRIPTION("userCache.description"),
+    USER_CACHE_HEADER("userCache.header"),
+    USER_CACHE_LOAD("userCache.load"),
+    USER_CACHE_LOOKUP("userCache.lookup"),
+    USER_CACHE_RESET("userCache.reset"),
+    USER_CACHE_SAVE("userCache.save"),
+    USER_CACHE_TIMER("userCache.timer"),
+    USER_CACHE_UNLOAD("userCache.unload"),
+    USER_CACHE_UNLOADS("userCache.unloads");
 
     private final String path;
 
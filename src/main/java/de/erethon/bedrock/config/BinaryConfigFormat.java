@@ -0,0 +1,323 @@
+package de.erethon.bedrock.config;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compact binary encoding of configurations.
+ * <br>
+ * Every value is written as a one byte tag followed by its data. Integers are written as variable-length zigzag
+ * numbers, strings, lists and maps are prefixed with their length. Values of {@link ConfigurationSerializable}s are
+ * written like maps, including their type alias, and are deserialized the same way YAML does.
+ *
+ * @see ConfigFormat#BINARY
+ * @since 1.5.18
+ */
+public final class BinaryConfigFormat implements ConfigFormat {
+
+    private static final int MAGIC = 0x42434647; // BCFG
+    private static final int VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte SECTION = 1;
+    private static final byte MAP = 2;
+    private static final byte LIST = 3;
+    private static final byte STRING = 4;
+    private static final byte TRUE = 5;
+    private static final byte FALSE = 6;
+    private static final byte INT = 7;
+    private static final byte LONG = 8;
+    private static final byte DOUBLE = 9;
+    private static final byte FLOAT = 10;
+    private static final byte BYTES = 11;
+
+    BinaryConfigFormat() {
+    }
+
+    @Override
+    public void load(byte @NotNull [] data, @NotNull FileConfiguration config) throws InvalidConfigurationException {
+        if (data.length == 0) {
+            return; // new file
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            if (in.readInt() != MAGIC) {
+                throw new InvalidConfigurationException("Not a binary configuration");
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new InvalidConfigurationException("Unsupported binary configuration version " + version);
+            }
+            if (in.readByte() != SECTION) {
+                throw new InvalidConfigurationException("Malformed binary configuration");
+            }
+            readSection(in, config);
+        } catch (IOException | RuntimeException e) {
+            throw new InvalidConfigurationException("Malformed binary configuration", e);
+        }
+    }
+
+    @Override
+    public byte @NotNull [] save(@NotNull FileConfiguration config) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        writeValue(out, config);
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public @NotNull String getFileExtension() {
+        return "bin";
+    }
+
+    /**
+     * Encodes a single configuration value, e.g. to store it outside a file.
+     *
+     * @param value the value to encode
+     * @return the encoded value
+     */
+    public static byte @NotNull [] encode(@Nullable Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try {
+            writeValue(new DataOutputStream(bytes), value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // can't happen for byte arrays
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a single value encoded by {@link #encode(Object)}. Sections are decoded as maps.
+     *
+     * @param data the encoded value
+     * @return the decoded value
+     * @throws IOException if the data is malformed
+     */
+    public static @Nullable Object decode(byte @NotNull [] data) throws IOException {
+        return readValue(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+
+    /* write */
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String string) {
+            out.writeByte(STRING);
+            writeString(out, string);
+        } else if (value instanceof Boolean bool) {
+            out.writeByte(bool ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(INT);
+            writeVarLong(out, ((Number) value).intValue());
+        } else if (value instanceof Long l) {
+            out.writeByte(LONG);
+            writeVarLong(out, l);
+        } else if (value instanceof Double d) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(d);
+        } else if (value instanceof Float f) {
+            out.writeByte(FLOAT);
+            out.writeFloat(f);
+        } else if (value instanceof byte[] array) {
+            out.writeByte(BYTES);
+            writeVarInt(out, array.length);
+            out.write(array);
+        } else if (value instanceof ConfigurationSection section) {
+            out.writeByte(SECTION);
+            Set<String> keys = section.getKeys(false);
+            writeVarInt(out, keys.size());
+            for (String key : keys) {
+                writeString(out, key);
+                writeValue(out, section.get(key));
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(MAP);
+            writeVarInt(out, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(out, entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        } else if (value instanceof List<?> list) {
+            out.writeByte(LIST);
+            writeVarInt(out, list.size());
+            for (Object element : list) {
+                writeValue(out, element);
+            }
+        } else if (value instanceof ConfigurationSerializable serializable) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, ConfigurationSerialization.getAlias(serializable.getClass()));
+            map.putAll(serializable.serialize());
+            writeValue(out, map);
+        } else {
+            out.writeByte(STRING); // e.g. characters, like YAML would do
+            writeString(out, value.toString());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) (zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    /* read */
+
+    private static void readSection(DataInputStream in, ConfigurationSection section) throws IOException {
+        int size = readLength(in);
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            byte tag = in.readByte();
+            if (tag == SECTION) {
+                readSection(in, section.createSection(key));
+            } else {
+                section.set(key, readValue(in, tag));
+            }
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        return readValue(in, in.readByte());
+    }
+
+    private static Object readValue(DataInputStream in, byte tag) throws IOException {
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case TRUE:
+                return true;
+            case FALSE:
+                return false;
+            case INT:
+                return (int) readVarLong(in);
+            case LONG:
+                return readVarLong(in);
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case BYTES:
+                byte[] array = new byte[readLength(in)];
+                in.readFully(array);
+                return array;
+            case SECTION: {
+                int size = readLength(in);
+                Map<String, Object> map = new LinkedHashMap<>(Math.max(16, size * 2));
+                for (int i = 0; i < size; i++) {
+                    map.put(readString(in), readValue(in));
+                }
+                return map;
+            }
+            case MAP: {
+                int size = readLength(in);
+                Map<Object, Object> map = new LinkedHashMap<>(Math.max(16, size * 2));
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(in), readValue(in));
+                }
+                if (map.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)) {
+                    @SuppressWarnings("unchecked")
+                    Map<String, ?> serialized = (Map<String, ?>) (Map<?, ?>) map;
+                    ConfigurationSerializable deserialized = ConfigurationSerialization.deserializeObject(serialized);
+                    if (deserialized != null) {
+                        return deserialized;
+                    }
+                }
+                return map;
+            }
+            case LIST: {
+                int size = readLength(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readLength(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the length of a string, an array or a collection, which can't exceed the remaining bytes, as every byte,
+     * element or entry takes up at least one byte. This prevents huge allocations for malformed data.
+     */
+    private static int readLength(DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        int remaining = in.available(); // exact, as the data is always read from a byte array
+        if (length > remaining) {
+            throw new IOException("Length " + length + " exceeds the remaining " + remaining + " bytes");
+        }
+        return length;
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IOException("Negative length");
+                }
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length number");
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = in.readUnsignedByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Malformed variable-length number");
+    }
+}
@@ -0,0 +1,63 @@
+package de.erethon.bedrock.config;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * The file format an {@link EConfig} is stored in. The values are always kept in a {@link FileConfiguration},
+ * the format only decides how they are read from and written into the file.
+ *
+ * @since 1.5.18
+ */
+public interface ConfigFormat {
+
+    /**
+     * The default, human-readable YAML format.
+     */
+    ConfigFormat YAML = new YamlConfigFormat();
+
+    /**
+     * A compact, length-prefixed binary format, which is faster to read and write than YAML.
+     */
+    ConfigFormat BINARY = new BinaryConfigFormat();
+
+    /**
+     * Reads the given file into the configuration.
+     *
+     * @param file the file to read
+     * @param config the configuration to fill
+     * @throws IOException if the file can't be read
+     * @throws InvalidConfigurationException if the file content is invalid
+     */
+    default void load(@NotNull File file, @NotNull FileConfiguration config) throws IOException, InvalidConfigurationException {
+        load(Files.readAllBytes(file.toPath()), config);
+    }
+
+    /**
+     * Reads the given data into the configuration.
+     *
+     * @param data the data to read
+     * @param config the configuration to fill
+     * @throws InvalidConfigurationException if the data is invalid
+     */
+    void load(byte @NotNull [] data, @NotNull FileConfiguration config) throws InvalidConfigurationException;
+
+    /**
+     * Writes the configuration into its file representation.
+     *
+     * @param config the configuration to write
+     * @return the file content
+     * @throws IOException if a value can't be written
+     */
+    byte @NotNull [] save(@NotNull FileConfiguration config) throws IOException;
+
+    /**
+     * @return the usual file extension of this format, without the dot
+     */
+    @NotNull String getFileExtension();
+}
@@ -0,0 +1,70 @@
+package de.erethon.bedrock.config;
+
+import de.erethon.bedrock.chat.MessageUtil;
+import de.erethon.bedrock.misc.FileUtil;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Converts configuration files between {@link ConfigFormat}s, e.g. to export binary player data as YAML for
+ * editing and to import it again afterwards.
+ *
+ * @since 1.5.18
+ */
+public class ConfigFormatConverter {
+
+    /**
+     * Converts a single file.
+     *
+     * @param source the file to read
+     * @param from the format of the source file
+     * @param target the file to write, which may be the source file
+     * @param to the format of the target file
+     * @throws IOException if a file can't be read or written
+     * @throws InvalidConfigurationException if the source file is invalid
+     */
+    public static void convert(@NotNull File source, @NotNull ConfigFormat from, @NotNull File target, @NotNull ConfigFormat to)
+            throws IOException, InvalidConfigurationException {
+        YamlConfiguration config = new YamlConfiguration();
+        from.load(source, config);
+        FileUtil.writeAtomically(target, to.save(config));
+    }
+
+    /**
+     * Converts all files with the extension of the source format inside the directory and its subdirectories.
+     * The converted files keep their name, but get the extension of the target format.
+     *
+     * @param directory the directory to convert
+     * @param from the format of the source files
+     * @param to the format of the target files
+     * @param deleteSources whether to delete the source files after they were converted
+     * @return the amount of converted files
+     */
+    public static int convertDirectory(@NotNull File directory, @NotNull ConfigFormat from, @NotNull ConfigFormat to, boolean deleteSources) {
+        String extension = "." + from.getFileExtension();
+        int converted = 0;
+        for (File source : FileUtil.getFilesForFolder(directory)) {
+            String name = source.getName();
+            if (!name.endsWith(extension)) {
+                continue;
+            }
+            File target = new File(source.getParentFile(), name.substring(0, name.length() - extension.length()) + "." + to.getFileExtension());
+            try {
+                convert(source, from, target, to);
+                if (deleteSources && !target.equals(source)) {
+                    Files.delete(source.toPath());
+                }
+                converted++;
+            } catch (IOException | InvalidConfigurationException e) {
+                MessageUtil.log("&4Could not convert &6" + source.getPath() + "&4...");
+                e.printStackTrace();
+            }
+        }
+        return converted;
+    }
+}
@@ -0,0 +1,54 @@
+package de.erethon.bedrock.config;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A path handle, which is meant to be created once and stored in a constant.
+ * <br>
+ * The handle remembers the index of its path together with the generation id of the last {@link ConfigSnapshot} it
+ * was used with, so repeated reads from the same snapshot skip the hash lookup. Both are packed into a single long,
+ * which is replaced atomically without allocating, so handles can be shared between threads and never keep old
+ * snapshots alive.
+ *
+ * @since 1.5.18
+ */
+public final class ConfigPath {
+
+    private final String path;
+    private volatile long binding; // generation in the high, index in the low 32 bits
+
+    private ConfigPath(String path) {
+        this.path = path;
+    }
+
+    /**
+     * @param path the full path, e.g. {@code "arena.maxPlayers"}
+     * @return a new handle for the path
+     */
+    public static @NotNull ConfigPath of(@NotNull String path) {
+        return new ConfigPath(path);
+    }
+
+    int indexIn(ConfigSnapshot snapshot) {
+        long current = binding;
+        int generation = snapshot.getGeneration();
+        if ((int) (current >>> 32) == generation) {
+            return (int) current;
+        }
+        int index = snapshot.indexOf(path);
+        binding = ((long) generation << 32) | (index & 0xFFFFFFFFL);
+        return index;
+    }
+
+    /**
+     * @return the full path
+     */
+    public @NotNull String getPath() {
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
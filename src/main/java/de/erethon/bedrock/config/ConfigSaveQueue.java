@@ -0,0 +1,188 @@
+package de.erethon.bedrock.config;
+
+import de.erethon.bedrock.chat.MessageUtil;
+import de.erethon.bedrock.misc.FileUtil;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Writes configuration files on a background thread.
+ * <br>
+ * Saving serializes the configuration on the caller's thread, so that neither its values nor mutable
+ * {@link org.bukkit.configuration.serialization.ConfigurationSerializable}s are read by another thread. Only the
+ * serialized content is handed to a single background thread, which writes it after a short delay. If the same file
+ * is saved again within that delay, only the latest content is written. {@link #flushAll()} writes all pending files
+ * immediately and is called when an {@link de.erethon.bedrock.plugin.EPlugin} gets disabled.
+ * <br>
+ * {@link EConfig}s use this queue if {@link EConfig#setAsyncSave(boolean) async saving} is enabled.
+ *
+ * @since 1.5.18
+ */
+public class ConfigSaveQueue {
+
+    private static volatile ConfigSaveQueue instance;
+
+    private final ScheduledExecutorService executor;
+    private final Map<File, Pending> pending = new ConcurrentHashMap<>();
+    private volatile long delayMillis;
+
+    private ConfigSaveQueue(long delayMillis) {
+        this.delayMillis = delayMillis;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "Bedrock-ConfigSaveQueue");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.executor = executor;
+    }
+
+    /**
+     * Queues the given configuration to be written into the file as YAML.
+     * Must be called on the thread that modifies the configuration, usually the main thread.
+     *
+     * @param file the file to write
+     * @param config the configuration to write
+     * @return a future completing once the file was written
+     */
+    public @NotNull CompletableFuture<Void> save(@NotNull File file, @NotNull FileConfiguration config) {
+        return save(file, config, ConfigFormat.YAML);
+    }
+
+    /**
+     * Queues the given configuration to be written into the file.
+     * Must be called on the thread that modifies the configuration, usually the main thread.
+     *
+     * @param file the file to write
+     * @param config the configuration to write
+     * @param format the format to write the file in
+     * @return a future completing once the file was written
+     */
+    public @NotNull CompletableFuture<Void> save(@NotNull File file, @NotNull FileConfiguration config, @NotNull ConfigFormat format) {
+        byte[] content;
+        try {
+            content = format.save(config);
+        } catch (IOException | RuntimeException e) {
+            MessageUtil.log("&4Could not save &6" + file.getPath() + "&4...");
+            e.printStackTrace();
+            return CompletableFuture.failedFuture(e);
+        }
+        return save(file, content);
+    }
+
+    /**
+     * Queues the given content to be written into the file.
+     *
+     * @param file the file to write
+     * @param content the serialized content, which must not be modified afterwards
+     * @return a future completing once the file was written
+     */
+    public @NotNull CompletableFuture<Void> save(@NotNull File file, byte @NotNull [] content) {
+        File key = file.getAbsoluteFile();
+        Pending[] created = new Pending[1];
+        Pending entry = pending.compute(key, (k, existing) -> {
+            if (existing != null) {
+                existing.content = content; // coalesce with the pending write
+                return existing;
+            }
+            return created[0] = new Pending(content);
+        });
+        if (created[0] != null) {
+            executor.schedule(() -> write(key), delayMillis, TimeUnit.MILLISECONDS);
+        }
+        return entry.future;
+    }
+
+    /**
+     * Writes all pending files and waits until they are written.
+     */
+    public void flushAll() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            executor.submit(() -> {
+                for (File file : new ArrayList<>(pending.keySet())) {
+                    write(file);
+                }
+            }).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            MessageUtil.log("&4Could not write all pending configuration files...");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the amount of files waiting to be written
+     */
+    public int getPendingAmount() {
+        return pending.size();
+    }
+
+    /**
+     * @return the delay in milliseconds before a queued file is written
+     */
+    public long getDelayMillis() {
+        return delayMillis;
+    }
+
+    /**
+     * @param delayMillis the delay in milliseconds before a queued file is written
+     */
+    public void setDelayMillis(long delayMillis) {
+        this.delayMillis = delayMillis;
+    }
+
+    private void write(File file) {
+        Pending entry = pending.remove(file);
+        if (entry == null) {
+            return; // already flushed
+        }
+        try {
+            FileUtil.writeAtomically(file, entry.content, true); // syncing doesn't block the main thread here
+            entry.future.complete(null);
+        } catch (IOException | RuntimeException e) {
+            MessageUtil.log("&4Could not save &6" + file.getPath() + "&4...");
+            e.printStackTrace();
+            entry.future.completeExceptionally(e);
+        }
+    }
+
+    private static final class Pending {
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private volatile byte[] content;
+
+        private Pending(byte[] content) {
+            this.content = content;
+        }
+    }
+
+    /**
+     * @return the shared save queue, which writes files one second after they were queued
+     */
+    public static ConfigSaveQueue getInstance() {
+        if (instance == null) {
+            synchronized (ConfigSaveQueue.class) {
+                if (instance == null) {
+                    instance = new ConfigSaveQueue(1000);
+                }
+            }
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,264 @@
+package de.erethon.bedrock.config;
+
+import org.bukkit.configuration.Configuration;
+import org.bukkit.configuration.ConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable, flattened copy of a configuration, which can be read from any thread.
+ * <br>
+ * Every value is stored under its full path, so reading a value is a single hash lookup instead of walking the
+ * section tree. Lists and maps are copied into unmodifiable collections. Values of
+ * {@link org.bukkit.configuration.serialization.ConfigurationSerializable}s are not copied and must not be modified.
+ * <br>
+ * Paths that are read frequently can be bound to a {@link ConfigPath}, which remembers its index in the snapshot it
+ * was last read from:
+ *
+ * <blockquote><pre>
+ *     private static final ConfigPath MAX_PLAYERS = ConfigPath.of("arena.maxPlayers");
+ *
+ *     int maxPlayers = config.getSnapshot().getInt(MAX_PLAYERS, 16);
+ * </pre></blockquote>
+ *
+ * @see EConfig#getSnapshot()
+ * @since 1.5.18
+ */
+public final class ConfigSnapshot {
+
+    private static final AtomicInteger GENERATIONS = new AtomicInteger();
+
+    private final int generation;
+    private final String[] paths;
+    private final Object[] values;
+    private final Map<String, Integer> index;
+    private final Map<String, List<String>> sections;
+
+    private ConfigSnapshot(List<String> paths, List<Object> values, Map<String, List<String>> sections) {
+        this.paths = paths.toArray(new String[0]);
+        this.values = values.toArray();
+        this.index = new HashMap<>(Math.max(16, (int) (paths.size() / 0.75f) + 1));
+        for (int i = 0; i < this.paths.length; i++) {
+            index.put(this.paths[i], i);
+        }
+        this.sections = sections;
+        int next;
+        do {
+            next = GENERATIONS.incrementAndGet();
+        } while (next == 0); // 0 marks unbound path handles
+        this.generation = next;
+    }
+
+    /**
+     * Flattens the section. This has to be called on the thread that modifies the section.
+     *
+     * @param section the section to copy
+     * @return the snapshot of the section
+     */
+    public static @NotNull ConfigSnapshot of(@NotNull ConfigurationSection section) {
+        Configuration root = section.getRoot();
+        char separator = root != null ? root.options().pathSeparator() : '.';
+        List<String> paths = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        Map<String, List<String>> sections = new HashMap<>();
+        flatten(section, "", separator, paths, values, sections);
+        return new ConfigSnapshot(paths, values, sections);
+    }
+
+    private static void flatten(ConfigurationSection section, String prefix, char separator, List<String> paths, List<Object> values,
+                                Map<String, List<String>> sections) {
+        List<String> keys = List.copyOf(section.getKeys(false));
+        sections.put(prefix, keys);
+        for (String key : keys) {
+            String path = prefix.isEmpty() ? key : prefix + separator + key;
+            Object value = section.get(key);
+            if (value instanceof ConfigurationSection child) {
+                flatten(child, path, separator, paths, values, sections);
+            } else {
+                paths.add(path);
+                values.add(freeze(value));
+            }
+        }
+    }
+
+    private static Object freeze(Object value) {
+        if (value instanceof ConfigurationSection section) {
+            return freeze(section.getValues(false));
+        } else if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object element : list) {
+                copy.add(freeze(element));
+            }
+            return Collections.unmodifiableList(copy);
+        } else if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>(Math.max(16, (int) (map.size() / 0.75f) + 1));
+            map.forEach((k, v) -> copy.put(k, freeze(v)));
+            return Collections.unmodifiableMap(copy);
+        }
+        return value;
+    }
+
+    /**
+     * @return the id of this snapshot, which differs from the ids of all recently created snapshots
+     */
+    int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @param path the path of a value
+     * @return the index of the value, or -1 if there is no value at the path
+     */
+    public int indexOf(@NotNull String path) {
+        Integer i = index.get(path);
+        return i != null ? i : -1;
+    }
+
+    /**
+     * @return the amount of values, sections not included
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @param path the path
+     * @return true if there is a value or a section at the path, false otherwise
+     */
+    public boolean contains(@NotNull String path) {
+        return index.containsKey(path) || sections.containsKey(path);
+    }
+
+    /**
+     * @param path the path
+     * @return true if there is a section at the path, false otherwise
+     */
+    public boolean isSection(@NotNull String path) {
+        return sections.containsKey(path);
+    }
+
+    /**
+     * @param path the path of a section, or an empty String for the root section
+     * @return the keys of the section, or an empty list if there is no section at the path
+     */
+    public @NotNull List<String> getKeys(@NotNull String path) {
+        return sections.getOrDefault(path, List.of());
+    }
+
+    /**
+     * @return an unmodifiable map of all values by their full path
+     */
+    public @NotNull Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>(Math.max(16, (int) (paths.length / 0.75f) + 1));
+        for (int i = 0; i < paths.length; i++) {
+            map.put(paths[i], values[i]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /* raw values */
+
+    public @Nullable Object get(@NotNull String path) {
+        return valueAt(indexOf(path));
+    }
+
+    public @Nullable Object get(@NotNull ConfigPath path) {
+        return valueAt(path.indexIn(this));
+    }
+
+    private Object valueAt(int i) {
+        return i < 0 ? null : values[i];
+    }
+
+    /* typed values, converted like Bukkit's MemorySection does */
+
+    public String getString(@NotNull String path, String def) {
+        return asString(get(path), def);
+    }
+
+    public String getString(@NotNull ConfigPath path, String def) {
+        return asString(get(path), def);
+    }
+
+    public int getInt(@NotNull String path, int def) {
+        return get(path) instanceof Number number ? number.intValue() : def;
+    }
+
+    public int getInt(@NotNull ConfigPath path, int def) {
+        return get(path) instanceof Number number ? number.intValue() : def;
+    }
+
+    public long getLong(@NotNull String path, long def) {
+        return get(path) instanceof Number number ? number.longValue() : def;
+    }
+
+    public long getLong(@NotNull ConfigPath path, long def) {
+        return get(path) instanceof Number number ? number.longValue() : def;
+    }
+
+    public double getDouble(@NotNull String path, double def) {
+        return get(path) instanceof Number number ? number.doubleValue() : def;
+    }
+
+    public double getDouble(@NotNull ConfigPath path, double def) {
+        return get(path) instanceof Number number ? number.doubleValue() : def;
+    }
+
+    public boolean getBoolean(@NotNull String path, boolean def) {
+        return get(path) instanceof Boolean bool ? bool : def;
+    }
+
+    public boolean getBoolean(@NotNull ConfigPath path, boolean def) {
+        return get(path) instanceof Boolean bool ? bool : def;
+    }
+
+    /**
+     * @return the string list at the path, or an empty list if there is no list
+     */
+    public @NotNull List<String> getStringList(@NotNull String path) {
+        return asStringList(get(path));
+    }
+
+    /**
+     * @return the string list at the path, or an empty list if there is no list
+     */
+    public @NotNull List<String> getStringList(@NotNull ConfigPath path) {
+        return asStringList(get(path));
+    }
+
+    private static String asString(Object value, String def) {
+        return value != null ? value.toString() : def;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> asStringList(Object value) {
+        if (!(value instanceof List<?> list)) {
+            return List.of();
+        }
+        boolean strings = true;
+        for (Object element : list) {
+            if (!(element instanceof String)) {
+                strings = false;
+                break;
+            }
+        }
+        if (strings) {
+            return (List<String>) list; // already unmodifiable
+        }
+        List<String> converted = new ArrayList<>(list.size());
+        for (Object element : list) {
+            if (element instanceof String || element instanceof Number || element instanceof Boolean || element instanceof Character) {
+                converted.add(element.toString());
+            }
+        }
+        return Collections.unmodifiableList(converted);
+    }
+}
@@ -1,13 +1,18 @@
 package de.erethon.bedrock.config;
 
 import de.erethon.bedrock.chat.MessageUtil;
+import de.erethon.bedrock.misc.FileUtil;
+import org.bukkit.Bukkit;
 import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @since 1.0.0
@@ -21,10 +26,25 @@ public abstract class EConfig {
     protected FileConfiguration config;
     protected int configVersion;
     protected boolean initialize;
+    protected boolean asyncSave;
+    protected final ConfigFormat format;
+    protected volatile ConfigSnapshot snapshot;
+    protected Exception loadError;
 
     public EConfig(File file, int configVersion) {
+        this(file, configVersion, ConfigFormat.YAML);
+    }
+
+    /**
+     * @param file the file to store the config in
+     * @param configVersion the current config version
+     * @param format the format of the file
+     * @since 1.5.18
+     */
+    public EConfig(File file, int configVersion, ConfigFormat format) {
         CONFIG_VERSION = configVersion;
         this.file = file;
+        this.format = format;
 
         if (!file.exists()) {
             try {
@@ -32,7 +52,7 @@ public abstract class EConfig {
                     file.getParentFile().mkdirs();
                 }
                 file.createNewFile();
-                config = YamlConfiguration.loadConfiguration(file);
+                config = new YamlConfiguration();
                 initialize = true;
             } catch (IOException exception) {
                 exception.printStackTrace();
@@ -40,17 +60,20 @@ public abstract class EConfig {
         } else {
             config = new YamlConfiguration();
             try {
-                config.load(file);
+                format.load(file, config);
             } catch (IOException | InvalidConfigurationException exception) {
                 MessageUtil.log("&4The configuration file &6" + file.getPath() + " &4seems to be erroneous.");
-                MessageUtil.log("&4This is not a bug. Try to fix the configuration file with &6http://yamllint.com&4.");
+                if (format == ConfigFormat.YAML) {
+                    MessageUtil.log("&4This is not a bug. Try to fix the configuration file with &6http://yamllint.com&4.");
+                }
                 MessageUtil.log("&4Produced stacktrace: ");
                 exception.printStackTrace();
+                loadError = exception;
                 String path = file.getPath();
                 file.renameTo(new File(path + "_backup_" + System.currentTimeMillis()));
                 try {
                     file.createNewFile();
-                    config.load(file);
+                    format.load(file, config);
                 } catch (IOException | InvalidConfigurationException exception2) {
                     exception2.printStackTrace();
                 }
@@ -129,6 +152,112 @@ public abstract class EConfig {
         return config;
     }
 
+    /**
+     * @return the format of the file
+     * @since 1.5.18
+     */
+    public ConfigFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Returns the latest published snapshot of the config, which can be read from any thread.
+     * <br>
+     * A snapshot is published by {@link #publishSnapshot()}, and when the file is reloaded or a
+     * {@link de.erethon.bedrock.config.storage.StorageDataContainer} finished its default loading process if
+     * {@link #isSnapshotEnabled()} returns true. Values that are set in the config afterwards only become visible with
+     * the next {@link #publishSnapshot()}. If no snapshot was published yet, the first call on the main thread
+     * publishes one. Configs that load their values in their own constructor and are read from other threads should
+     * call {@link #publishSnapshot()} at its end.
+     *
+     * @return the latest published snapshot of the config
+     * @throws IllegalStateException if no snapshot was published yet and this is called off the main thread
+     * @since 1.5.18
+     */
+    public ConfigSnapshot getSnapshot() {
+        ConfigSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        if (!Bukkit.isPrimaryThread()) {
+            throw new IllegalStateException("No snapshot of " + file.getPath() + " was published on the main thread");
+        }
+        return publishSnapshot();
+    }
+
+    /**
+     * Copies the current values into a new snapshot and publishes it. This has to be called on the thread that
+     * modifies the config, usually the main thread.
+     *
+     * @return the new snapshot
+     * @since 1.5.18
+     */
+    public ConfigSnapshot publishSnapshot() {
+        ConfigSnapshot current = ConfigSnapshot.of(config);
+        snapshot = current;
+        return current;
+    }
+
+    /**
+     * Returns the error that occurred while loading the file, e.g. if the file couldn't be parsed and was regenerated.
+     * The config then only contains default values.
+     *
+     * @return the load error, or null if the file was loaded successfully
+     * @since 1.5.18
+     */
+    public @Nullable Exception getLoadError() {
+        return loadError;
+    }
+
+    /**
+     * Records an error that occurred while loading the file. Further errors are added as suppressed exceptions.
+     *
+     * @param error the error
+     * @since 1.5.18
+     */
+    protected void addLoadError(Exception error) {
+        if (loadError == null) {
+            loadError = error;
+        } else {
+            loadError.addSuppressed(error);
+        }
+    }
+
+    /**
+     * Whether a snapshot is published whenever the file is loaded or reloaded. Configs that are read from other
+     * threads should override this to return true. It isn't called before the subclass is constructed.
+     *
+     * @return true if snapshots are published on load, false otherwise
+     * @since 1.5.18
+     */
+    protected boolean isSnapshotEnabled() {
+        return false;
+    }
+
+    /**
+     * Reads the file again and calls {@link #load()}. A new snapshot is published if snapshots are enabled or a
+     * snapshot was published before. The previous values are kept if the file can't be read.
+     *
+     * @since 1.5.18
+     */
+    public void reloadConfig() {
+        FileConfiguration reloaded = new YamlConfiguration();
+        try {
+            format.load(file, reloaded);
+        } catch (IOException | InvalidConfigurationException exception) {
+            MessageUtil.log("&4Could not reload &6" + file.getPath() + "&4...");
+            exception.printStackTrace();
+            return;
+        }
+        config = reloaded;
+        configVersion = config.getInt("configVersion");
+        loadError = null;
+        load();
+        if (isSnapshotEnabled() || snapshot != null) {
+            publishSnapshot();
+        }
+    }
+
     /**
      * @return the configuration version
      */
@@ -145,13 +274,48 @@ public abstract class EConfig {
     }
 
     /**
-     * Save the configuration to the file
+     * @return true if saving writes the file on a background thread, false otherwise
+     * @since 1.5.18
+     */
+    public boolean isAsyncSave() {
+        return asyncSave;
+    }
+
+    /**
+     * If enabled, {@link #save()} only serializes the config and leaves writing the file to the
+     * {@link ConfigSaveQueue}, which also merges repeated saves of the same file.
+     *
+     * @param asyncSave whether to save the file on a background thread
+     * @since 1.5.18
+     */
+    public void setAsyncSave(boolean asyncSave) {
+        this.asyncSave = asyncSave;
+    }
+
+    /**
+     * Save the configuration to the file. The file is replaced atomically, so a crash while saving can't truncate it.
      */
     public void save() {
+        saveFile();
+    }
+
+    /**
+     * Save the configuration to the file, like {@link #save()}.
+     *
+     * @return a future that completes once the file was written, or completes exceptionally if writing failed
+     * @since 1.5.18
+     */
+    public @NotNull CompletableFuture<Void> saveFile() {
+        if (asyncSave) {
+            return ConfigSaveQueue.getInstance().save(file, config, format);
+        }
         try {
-            config.save(file);
+            FileUtil.writeAtomically(file, format.save(config));
+            return CompletableFuture.completedFuture(null);
         } catch (IOException exception) {
             MessageUtil.log("&4Could not save &6" + file.getPath() + "&4...");
+            exception.printStackTrace();
+            return CompletableFuture.failedFuture(exception);
         }
     }
 
@@ -0,0 +1,29 @@
+package de.erethon.bedrock.config;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @see ConfigFormat#YAML
+ * @since 1.5.18
+ */
+final class YamlConfigFormat implements ConfigFormat {
+
+    @Override
+    public void load(byte @NotNull [] data, @NotNull FileConfiguration config) throws InvalidConfigurationException {
+        config.loadFromString(new String(data, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public byte @NotNull [] save(@NotNull FileConfiguration config) {
+        return config.saveToString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public @NotNull String getFileExtension() {
+        return "yml";
+    }
+}
@@ -0,0 +1,409 @@
+package de.erethon.bedrock.config.storage;
+
+import de.erethon.bedrock.chat.MessageUtil;
+import de.erethon.bedrock.config.BinaryConfigFormat;
+import de.erethon.bedrock.database.EDatabaseManager;
+import de.erethon.bedrock.plugin.EPlugin;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.statement.PreparedBatch;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link StorageData} container that stores its values in a database table instead of a file, so that the same
+ * annotated classes can be shared between multiple servers.
+ * <br>
+ * Every value is stored as one row of a key-value table, identified by the owner of the container and the path of
+ * the value. The values are encoded with {@link BinaryConfigFormat#encode(Object)}. Saving only writes the rows of
+ * values that changed since they were loaded or saved, all in one batch. Loading decodes the rows on the database
+ * thread, but sets the fields on the main thread, like saving reads them there. A container can only be saved once
+ * its rows were loaded, so that the defaults of the fields never overwrite the stored values.
+ * <br>
+ * The table has to be created in {@link EDatabaseManager#initializeSchema()} with {@link #createTable(Handle, String)}.
+ * Like {@link StorageDataContainer}s, subclasses call {@link #defaultLoadProcess()} in their constructor:
+ *
+ * <blockquote><pre>
+ *     public class PlayerStats extends DatabaseStorageDataContainer {
+ *
+ *         &#64;StorageData(path = "kills")
+ *         private int kills;
+ *
+ *         public PlayerStats(EDatabaseManager database, UUID uuid) {
+ *             super(database, "player_stats", uuid.toString());
+ *             defaultLoadProcess().thenRun(() -&gt; ...); // runs on the main thread
+ *         }
+ *     }
+ * </pre></blockquote>
+ *
+ * Many containers of the same table, e.g. of all players that were online before a restart, can be loaded with a
+ * single query per 1000 owners by {@link #loadAllAsync(EDatabaseManager, Collection)} instead.
+ * <br>
+ * <b>Note:</b> the statements use the PostgreSQL column type {@code BYTEA} and {@code INSERT ... ON CONFLICT}, so
+ * this container only works with PostgreSQL databases.
+ *
+ * @since 1.5.18
+ */
+public class DatabaseStorageDataContainer {
+
+    private static final Pattern TABLE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+    private static final int MAX_OWNERS_PER_QUERY = 1000;
+
+    protected final EDatabaseManager database;
+    protected final String table;
+    protected final String owner;
+    /**
+     * Holds the serialized values, like the configuration of a file container does.
+     */
+    protected final MemoryConfiguration config = new MemoryConfiguration();
+    private final List<StorageDataField> dataFields = new ArrayList<>();
+    private final Set<String> pendingPaths = new LinkedHashSet<>();
+    private boolean sparse;
+    private boolean loaded;
+
+    /**
+     * @param database the database manager to run the queries with
+     * @param table the name of the key-value table
+     * @param owner the key of this container inside the table, e.g. the UUID of a player
+     */
+    public DatabaseStorageDataContainer(@NotNull EDatabaseManager database, @NotNull String table, @NotNull String owner) {
+        this.database = database;
+        this.table = checkTableName(table);
+        this.owner = owner;
+    }
+
+    /**
+     * Creates the key-value table if it doesn't exist yet. The statement is written for PostgreSQL.
+     *
+     * @param handle the handle to execute the statement with
+     * @param table the name of the table
+     */
+    public static void createTable(@NotNull Handle handle, @NotNull String table) {
+        handle.execute("CREATE TABLE IF NOT EXISTS " + checkTableName(table) + " ("
+                + "owner VARCHAR(64) NOT NULL, "
+                + "path VARCHAR(255) NOT NULL, "
+                + "value BYTEA, "
+                + "PRIMARY KEY (owner, path))");
+    }
+
+    /**
+     * @return true if only values differing from the defaults are stored, false otherwise
+     */
+    public boolean isSparse() {
+        return sparse;
+    }
+
+    /**
+     * Enables or disables the sparse mode, which has to be set before the data is loaded.
+     *
+     * @param sparse whether to store only values differing from the defaults
+     * @see StorageDataContainer#setSparse(boolean)
+     */
+    protected void setSparse(boolean sparse) {
+        this.sparse = sparse;
+    }
+
+    /**
+     * Run the default loading process
+     *
+     * @return a future that is completed on the main thread once the fields are set
+     */
+    protected CompletableFuture<Void> defaultLoadProcess() {
+        loadDataFields();
+        loadInitialValues();
+        return loadAsync();
+    }
+
+    /**
+     * Load the data fields from this container
+     */
+    protected void loadDataFields() {
+        StorageDataSchema.of(getClass()).bind(this, dataFields);
+    }
+
+    /**
+     * Load the initial data of the fields
+     */
+    protected void loadInitialValues() {
+        for (StorageDataField field : dataFields) {
+            try {
+                field.loadInitialValue();
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Loads the rows of this container in one query. The values are decoded on the database thread, the fields are
+     * set on the main thread afterwards. Values to initialize are written with the next save.
+     *
+     * @return a future that is completed on the main thread once the fields are set
+     */
+    public CompletableFuture<Void> loadAsync() {
+        return database.queryAsync(handle -> handle.createQuery("SELECT path, value FROM " + table + " WHERE owner = :owner")
+                .bind("owner", owner)
+                .map((rs, ctx) -> new Row(owner, rs.getString("path"), rs.getBytes("value")))
+                .list()
+        ).thenApply(rows -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            rows.forEach(row -> decode(row, values));
+            return values;
+        }).thenAcceptAsync(this::apply, mainThreadExecutor());
+    }
+
+    /**
+     * Loads the rows of all given containers with one query per table and 1000 owners, e.g. to load the containers
+     * of many players at once. The values are decoded on the database thread, the fields are set on the main thread
+     * afterwards.
+     * <br>
+     * The containers have to be prepared with {@link #loadDataFields()} and {@link #loadInitialValues()} instead of
+     * {@link #defaultLoadProcess()}. Every owner must only be passed once per table.
+     *
+     * @param database the database manager to run the queries with
+     * @param containers the containers to load
+     * @return a future that is completed on the main thread once the fields of all containers are set
+     */
+    public static CompletableFuture<Void> loadAllAsync(@NotNull EDatabaseManager database, @NotNull Collection<? extends DatabaseStorageDataContainer> containers) {
+        Map<String, Map<String, DatabaseStorageDataContainer>> tables = new LinkedHashMap<>();
+        for (DatabaseStorageDataContainer container : containers) {
+            tables.computeIfAbsent(container.table, k -> new LinkedHashMap<>()).put(container.owner, container);
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Map.Entry<String, Map<String, DatabaseStorageDataContainer>> entry : tables.entrySet()) {
+            String table = entry.getKey();
+            Map<String, DatabaseStorageDataContainer> owners = entry.getValue();
+            List<String> keys = new ArrayList<>(owners.keySet());
+            for (int i = 0; i < keys.size(); i += MAX_OWNERS_PER_QUERY) {
+                List<String> chunk = keys.subList(i, Math.min(keys.size(), i + MAX_OWNERS_PER_QUERY));
+                futures.add(database.queryAsync(handle -> handle.createQuery("SELECT owner, path, value FROM " + table + " WHERE owner IN (<owners>)")
+                        .bindList("owners", chunk)
+                        .map((rs, ctx) -> new Row(rs.getString("owner"), rs.getString("path"), rs.getBytes("value")))
+                        .list()
+                ).thenApply(rows -> {
+                    Map<String, Map<String, Object>> values = new HashMap<>();
+                    for (Row row : rows) {
+                        DatabaseStorageDataContainer container = owners.get(row.owner());
+                        if (container != null) {
+                            container.decode(row, values.computeIfAbsent(row.owner(), k -> new LinkedHashMap<>()));
+                        }
+                    }
+                    return values;
+                }).thenAcceptAsync(values -> {
+                    for (String owner : chunk) { // owners without rows are initialized with their defaults
+                        owners.get(owner).apply(values.getOrDefault(owner, Map.of()));
+                    }
+                }, mainThreadExecutor()));
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    private void decode(Row row, Map<String, Object> target) {
+        try {
+            target.put(row.path(), row.value() == null ? null : BinaryConfigFormat.decode(row.value()));
+        } catch (IOException e) {
+            MessageUtil.log("&4Could not decode the value &6" + row.path() + "&4 of &6" + owner + "&4 in &6" + table + "&4...");
+            e.printStackTrace();
+        }
+    }
+
+    private synchronized void apply(Map<String, Object> values) {
+        values.forEach(config::set);
+        for (StorageDataField field : dataFields) {
+            if (field.initialize(config, sparse)) {
+                pendingPaths.add(field.getPath());
+            }
+            try {
+                field.load(config, sparse);
+            } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException | InstantiationException e) {
+                e.printStackTrace();
+            }
+        }
+        loaded = true;
+    }
+
+    private static Executor mainThreadExecutor() {
+        return Bukkit.getScheduler().getMainThreadExecutor(EPlugin.getInstance());
+    }
+
+    /**
+     * Saves the changed values in one batch. The values are serialized on the calling thread, which should be the
+     * thread that modifies the fields.
+     *
+     * @return a future that is completed once the rows are written, or completed exceptionally with an
+     * {@link IllegalStateException} if the rows weren't loaded yet
+     */
+    public CompletableFuture<Void> saveDataAsync() {
+        if (!isLoaded()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("The rows of " + owner + " in " + table + " weren't loaded yet"));
+        }
+        Changes changes = collectChanges();
+        if (changes.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return database.useTransactionAsync(changes::write).whenComplete((v, ex) -> {
+            if (ex != null) {
+                changes.failed(ex);
+            }
+        });
+    }
+
+    /**
+     * Saves the changed values of all containers in one transaction, e.g. for periodic auto saves. Containers whose
+     * rows weren't loaded yet are skipped, their changes are saved with the first save after loading.
+     *
+     * @param database the database manager to run the queries with
+     * @param containers the containers to save
+     * @return a future that is completed once the rows are written
+     */
+    public static CompletableFuture<Void> saveAllAsync(@NotNull EDatabaseManager database, @NotNull Collection<? extends DatabaseStorageDataContainer> containers) {
+        List<Changes> changes = new ArrayList<>(containers.size());
+        for (DatabaseStorageDataContainer container : containers) {
+            Changes containerChanges = container.collectChanges();
+            if (!containerChanges.isEmpty()) {
+                changes.add(containerChanges);
+            }
+        }
+        if (changes.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return database.useTransactionAsync(handle -> {
+            for (Changes containerChanges : changes) {
+                containerChanges.write(handle);
+            }
+        }).whenComplete((v, ex) -> {
+            if (ex != null) {
+                changes.forEach(containerChanges -> containerChanges.failed(ex));
+            }
+        });
+    }
+
+    private synchronized Changes collectChanges() {
+        if (!loaded) {
+            return new Changes(List.of(), List.of(), List.of());
+        }
+        for (StorageDataField field : dataFields) {
+            try {
+                if (field.save(config, sparse)) {
+                    pendingPaths.add(field.getPath());
+                }
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+            }
+        }
+        Changes changes = new Changes(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        for (String path : pendingPaths) {
+            Object value = config.get(path);
+            if (value == null) {
+                changes.removed.add(path);
+            } else {
+                changes.paths.add(path);
+                changes.values.add(BinaryConfigFormat.encode(value));
+            }
+        }
+        pendingPaths.clear();
+        return changes;
+    }
+
+    private static String checkTableName(String table) {
+        if (!TABLE_NAME.matcher(table).matches()) {
+            throw new IllegalArgumentException("Invalid table name: " + table);
+        }
+        return table;
+    }
+
+    /* getter */
+
+    /**
+     * @return the data fields of this container
+     */
+    public @NotNull List<StorageDataField> getDataFields() {
+        return dataFields;
+    }
+
+    /**
+     * @return true if the rows of this container were loaded and it can be saved, false otherwise
+     */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return the name of the table the values are stored in
+     */
+    public @NotNull String getTable() {
+        return table;
+    }
+
+    /**
+     * @return the key of this container inside the table
+     */
+    public @NotNull String getOwner() {
+        return owner;
+    }
+
+    private record Row(String owner, String path, byte[] value) {}
+
+    /**
+     * The rows to write for one container, encoded on the thread that collected them.
+     */
+    private final class Changes {
+
+        private final List<String> paths;
+        private final List<byte[]> values;
+        private final List<String> removed;
+
+        private Changes(List<String> paths, List<byte[]> values, List<String> removed) {
+            this.paths = paths;
+            this.values = values;
+            this.removed = removed;
+        }
+
+        boolean isEmpty() {
+            return paths.isEmpty() && removed.isEmpty();
+        }
+
+        void write(Handle handle) {
+            if (!paths.isEmpty()) {
+                PreparedBatch batch = handle.prepareBatch("INSERT INTO " + table + " (owner, path, value) VALUES (:owner, :path, :value) "
+                        + "ON CONFLICT (owner, path) DO UPDATE SET value = EXCLUDED.value");
+                for (int i = 0; i < paths.size(); i++) {
+                    batch.bind("owner", owner).bind("path", paths.get(i)).bind("value", values.get(i)).add();
+                }
+                batch.execute();
+            }
+            if (!removed.isEmpty()) {
+                PreparedBatch batch = handle.prepareBatch("DELETE FROM " + table + " WHERE owner = :owner AND path = :path");
+                for (String path : removed) {
+                    batch.bind("owner", owner).bind("path", path).add();
+                }
+                batch.execute();
+            }
+        }
+
+        // the rows are written again with the next save, using the values of that time
+        void failed(Throwable ex) {
+            MessageUtil.log("&4Could not save &6" + owner + "&4 in &6" + table + "&4...");
+            ex.printStackTrace();
+            synchronized (DatabaseStorageDataContainer.this) {
+                pendingPaths.addAll(paths);
+                pendingPaths.addAll(removed);
+            }
+        }
+    }
+}
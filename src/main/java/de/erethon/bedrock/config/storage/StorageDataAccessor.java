@@ -0,0 +1,122 @@
+package de.erethon.bedrock.config.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * The {@link StorageData} and {@link AdditionalContainer} fields of a class, generated at compile time by the
+ * {@code bedrock-processor} annotation processor.
+ * <br>
+ * The generated class is named like the container class with the {@link #SUFFIX} appended and lives in the same
+ * package, e.g. {@code PlayerData_StorageData} for {@code PlayerData}. If it exists, the {@link StorageDataSchema}
+ * takes the fields and their annotation values from it instead of scanning the class with reflection. Every field is
+ * accessed by its own generated class: fields that are at least package-private are read and written directly, private
+ * fields through a {@link java.lang.invoke.VarHandle} of the field's exact type.
+ * <br>
+ * No accessor can be generated for local, anonymous or private classes, or for classes with storage fields whose type
+ * is a private class, as the generated code can't name them. These classes are scanned with reflection instead.
+ *
+ * @since 1.5.18
+ */
+public interface StorageDataAccessor {
+
+    String SUFFIX = "_StorageData";
+
+    /**
+     * @return the storage data fields of the class, in their declaration order
+     */
+    @NotNull List<DataField> getFields();
+
+    /**
+     * @return the additional container fields of the class, in their declaration order
+     */
+    @NotNull List<ContainerField> getAdditionalContainers();
+
+    /**
+     * A {@link StorageData} field together with its annotation values.
+     */
+    abstract class DataField {
+
+        private final String name;
+        private final Class<?> type;
+        private final StorageData annotation;
+        private final boolean writable;
+
+        /**
+         * @param name the name of the field
+         * @param type the declared type of the field
+         * @param annotation the annotation of the field
+         * @param writable false if the field is final, true otherwise
+         */
+        protected DataField(@NotNull String name, @NotNull Class<?> type, @NotNull StorageData annotation, boolean writable) {
+            this.name = name;
+            this.type = type;
+            this.annotation = annotation;
+            this.writable = writable;
+        }
+
+        /**
+         * @param container the object to get the value of, ignored for static fields
+         * @return the value of the field
+         */
+        public abstract Object get(Object container);
+
+        /**
+         * @param container the object to set the value of, ignored for static fields
+         * @param value the new value
+         * @throws UnsupportedOperationException if the field is final
+         */
+        public void set(Object container, Object value) {
+            throw new UnsupportedOperationException("Field " + name + " is final");
+        }
+
+        public @NotNull String getName() {
+            return name;
+        }
+
+        public @NotNull Class<?> getType() {
+            return type;
+        }
+
+        public @NotNull StorageData getAnnotation() {
+            return annotation;
+        }
+
+        public boolean isWritable() {
+            return writable;
+        }
+    }
+
+    /**
+     * An {@link AdditionalContainer} field together with its sub path.
+     */
+    abstract class ContainerField {
+
+        private final String name;
+        private final String subPath;
+
+        /**
+         * @param name the name of the field
+         * @param subPath the sub path of the annotation
+         */
+        protected ContainerField(@NotNull String name, @NotNull String subPath) {
+            this.name = name;
+            this.subPath = subPath;
+        }
+
+        /**
+         * @param container the object to get the value of, ignored for static fields
+         * @return the additional container, or null
+         */
+        public abstract Object get(Object container);
+
+        public @NotNull String getName() {
+            return name;
+        }
+
+        public @NotNull String getSubPath() {
+            return subPath;
+        }
+    }
+}
@@ -1,10 +1,9 @@
 package de.erethon.bedrock.config.storage;
 
-import de.erethon.bedrock.chat.MessageUtil;
+import de.erethon.bedrock.config.ConfigFormat;
 import de.erethon.bedrock.config.EConfig;
 
 import java.io.File;
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
@@ -16,19 +15,56 @@ import java.util.List;
 public class StorageDataContainer extends EConfig {
 
     private final List<StorageDataField> dataFields = new ArrayList<>();
+    private boolean sparse;
+    private volatile boolean dirty;
 
     public StorageDataContainer(File file, int configVersion) {
         super(file, configVersion);
     }
 
     /**
-     * Run the default loading process
+     * @param file the file to store the data in
+     * @param configVersion the current config version
+     * @param format the format of the file, e.g. {@link ConfigFormat#BINARY} for large amounts of per-player files
+     * @since 1.5.18
+     */
+    public StorageDataContainer(File file, int configVersion, ConfigFormat format) {
+        super(file, configVersion, format);
+    }
+
+    /**
+     * @return true if only values differing from the defaults are stored, false otherwise
+     * @since 1.5.18
+     */
+    public boolean isSparse() {
+        return sparse;
+    }
+
+    /**
+     * Enables or disables the sparse mode, which has to be set before the data is loaded.
+     * <br>
+     * Sparse containers neither initialize default values in their file, nor save values that equal the defaults.
+     * The defaults are the initial field values of the first container of the class, which should therefore not
+     * depend on the instance. Missing values keep their initial field value when loading.
+     *
+     * @param sparse whether to store only values differing from the defaults
+     * @since 1.5.18
+     */
+    protected void setSparse(boolean sparse) {
+        this.sparse = sparse;
+    }
+
+    /**
+     * Run the default loading process. A snapshot is published afterwards if {@link #isSnapshotEnabled()} returns true.
      */
     protected void defaultLoadProcess() {
         loadDataFields();
         loadInitialValues();
         initialize();
         load();
+        if (isSnapshotEnabled()) {
+            publishSnapshot();
+        }
     }
 
     /**
@@ -41,26 +77,7 @@ public class StorageDataContainer extends EConfig {
     }
 
     private void loadDataFields(Object valueContainer, String subPath) {
-        Field[] fields = valueContainer.getClass().getDeclaredFields();
-        for (Field field : fields) {
-            if (field.isAnnotationPresent(StorageData.class)) {
-                try {
-                    dataFields.add(new StorageDataField(valueContainer, field, subPath));
-                } catch (IllegalArgumentException e) {
-                    e.printStackTrace();
-                }
-                continue;
-            }
-            if (field.isAnnotationPresent(AdditionalContainer.class)) {
-                String sub = field.getAnnotation(AdditionalContainer.class).subPath();
-                try {
-                    field.setAccessible(true);
-                    loadDataFields(field.get(valueContainer), subPath + sub);
-                } catch (IllegalAccessException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
+        StorageDataSchema.of(valueContainer.getClass(), subPath).bind(valueContainer, dataFields);
     }
 
     /**
@@ -77,44 +94,74 @@ public class StorageDataContainer extends EConfig {
     }
 
     /**
-     * Initial setup
+     * Initial setup. The file is only written if a value was initialized.
      */
     @Override
     public void initialize() {
+        boolean changed = false;
         for (StorageDataField field : dataFields) {
-            field.initialize(this);
+            changed |= field.initialize(getConfig(), sparse);
+        }
+        if (changed) {
+            super.save();
         }
-        super.save();
     }
 
     /**
-     * Load the data from the config file
+     * Load the data from the config file. Fields that fail to load keep their initial value and their errors are
+     * recorded as {@link #getLoadError() load error}.
      */
     @Override
     public void load() {
         for (StorageDataField field : dataFields) {
             try {
-                field.load(this);
-            } catch (NullPointerException e) {
-                MessageUtil.log("No data translator for " + field.getType().getName() + " found");
+                field.load(getConfig(), sparse);
             } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException | InstantiationException e) {
                 e.printStackTrace();
+                addLoadError(e);
             }
         }
     }
 
     /**
-     * Saves the stored data into the config file
+     * Saves the stored data into the config file. The file is only written if a value changed.
      */
     public void saveData() {
+        saveDataIfChanged();
+    }
+
+    /**
+     * Saves the stored data into the config file, if a value changed or the last write failed.
+     *
+     * @return true if the file was written, false otherwise
+     * @since 1.5.18
+     */
+    public boolean saveDataIfChanged() {
+        boolean changed = dirty;
         for (StorageDataField field : dataFields) {
             try {
-                field.save(this);
+                changed |= field.save(getConfig(), sparse);
             } catch (IllegalAccessException e) {
                 e.printStackTrace();
             }
         }
-        super.save();
+        if (changed) {
+            // the fields already treat the values as saved, so a failed write has to be repeated on the next save
+            dirty = false;
+            super.saveFile().exceptionally(e -> {
+                dirty = true;
+                return null;
+            });
+        }
+        return changed;
+    }
+
+    /**
+     * @return true if the last write of the file failed and the next save writes it regardless of changes
+     * @since 1.5.18
+     */
+    public boolean isDirty() {
+        return dirty;
     }
 
 }
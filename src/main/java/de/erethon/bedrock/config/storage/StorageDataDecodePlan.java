@@ -0,0 +1,204 @@
+package de.erethon.bedrock.config.storage;
+
+import de.erethon.bedrock.misc.IntList;
+import de.erethon.bedrock.misc.IntObjectMap;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+
+/**
+ * The immutable decoding steps of a {@link StorageData} field, compiled once from its type and its
+ * {@link StorageData#keyTypes()} and {@link StorageData#valueTypes()}.
+ * <br>
+ * Every nesting level holds its translator and a factory for presized containers of its type, so that nested
+ * collections and maps are decoded in a single pass, directly into the container types of the field.
+ *
+ * @since 1.5.18
+ */
+final class StorageDataDecodePlan {
+
+    private static final MethodType FACTORY_TYPE = MethodType.methodType(Object.class);
+
+    private final Class<?> type;
+    private final StorageDataTranslator<?> translator;
+    private final Kind kind;
+    private final StorageDataDecodePlan keyPlan;
+    private final StorageDataDecodePlan valuePlan;
+    private final IntFunction<Object> factory;
+    private final int translatorVersion;
+
+    private StorageDataDecodePlan(Class<?> type, Class<?>[] keyTypes, int keyIndex, Class<?>[] valueTypes, int valueIndex, int translatorVersion) {
+        this.type = type;
+        this.translator = StorageDataTranslators.get(type);
+        this.translatorVersion = translatorVersion;
+        if (Collection.class.isAssignableFrom(type)) {
+            this.kind = Kind.COLLECTION;
+            this.keyPlan = null;
+            this.valuePlan = new StorageDataDecodePlan(typeAt(valueTypes, valueIndex), keyTypes, keyIndex, valueTypes, valueIndex + 1, translatorVersion);
+            this.factory = collectionFactory(type);
+        } else if (Map.class.isAssignableFrom(type)) {
+            this.kind = Kind.MAP;
+            this.keyPlan = new StorageDataDecodePlan(typeAt(keyTypes, keyIndex), keyTypes, keyIndex + 1, valueTypes, valueIndex, translatorVersion);
+            this.valuePlan = new StorageDataDecodePlan(typeAt(valueTypes, valueIndex), keyTypes, keyIndex, valueTypes, valueIndex + 1, translatorVersion);
+            this.factory = mapFactory(type);
+        } else if (IntObjectMap.class.isAssignableFrom(type)) {
+            this.kind = Kind.INT_OBJECT_MAP;
+            this.keyPlan = null;
+            this.valuePlan = new StorageDataDecodePlan(typeAt(valueTypes, valueIndex), keyTypes, keyIndex, valueTypes, valueIndex + 1, translatorVersion);
+            this.factory = null;
+        } else {
+            this.kind = Kind.VALUE;
+            this.keyPlan = null;
+            this.valuePlan = null;
+            this.factory = null;
+        }
+    }
+
+    /**
+     * @param type the field type
+     * @param keyTypes the map key types of the field
+     * @param valueTypes the map/collection value types of the field
+     * @return the compiled plan
+     */
+    static StorageDataDecodePlan compile(Class<?> type, Class<?>[] keyTypes, Class<?>[] valueTypes) {
+        return new StorageDataDecodePlan(type, keyTypes, 0, valueTypes, 0, StorageDataTranslators.getVersion());
+    }
+
+    /**
+     * @return false if translators were registered after this plan was compiled, true otherwise
+     */
+    boolean isCurrent() {
+        return translatorVersion == StorageDataTranslators.getVersion();
+    }
+
+    /**
+     * Deserializes the serialized value with the translators of this plan.
+     *
+     * @param value the serialized value
+     * @return the deserialized value
+     */
+    Object decode(Object value) {
+        Object deserialized = translator.deserialize(value, type);
+        switch (kind) {
+            case COLLECTION -> {
+                if (!(deserialized instanceof Collection<?> serialized) || serialized.isEmpty()) {
+                    return deserialized;
+                }
+                @SuppressWarnings("unchecked")
+                Collection<Object> target = (Collection<Object>) factory.apply(serialized.size());
+                for (Object element : serialized) {
+                    target.add(valuePlan.decode(element));
+                }
+                return target;
+            }
+            case MAP -> {
+                if (!(deserialized instanceof Map<?, ?> serialized) || serialized.isEmpty()) {
+                    return deserialized;
+                }
+                @SuppressWarnings("unchecked")
+                Map<Object, Object> target = (Map<Object, Object>) factory.apply(serialized.size());
+                for (Map.Entry<?, ?> entry : serialized.entrySet()) {
+                    target.put(keyPlan.decode(entry.getKey()), valuePlan.decode(entry.getValue()));
+                }
+                return target;
+            }
+            case INT_OBJECT_MAP -> {
+                if (deserialized instanceof IntObjectMap<?> map) {
+                    @SuppressWarnings("unchecked")
+                    IntObjectMap<Object> values = (IntObjectMap<Object>) map;
+                    IntList skipped = new IntList();
+                    // replacing the values of present keys doesn't change the table, so it's safe while iterating
+                    values.forEach((key, v) -> {
+                        Object decoded = valuePlan.decode(v);
+                        if (decoded != null) {
+                            values.put(key, decoded);
+                        } else {
+                            skipped.add(key); // the map can't hold null values, like the translator skips them
+                        }
+                    });
+                    for (int i = 0; i < skipped.size(); i++) {
+                        values.remove(skipped.get(i));
+                    }
+                }
+                return deserialized;
+            }
+            default -> {
+                return deserialized;
+            }
+        }
+    }
+
+    private static Class<?> typeAt(Class<?>[] types, int index) {
+        return types.length <= index ? Object.class : types[index];
+    }
+
+    /* factories */
+
+    private static IntFunction<Object> collectionFactory(Class<?> type) {
+        if (type == ArrayList.class || type.isAssignableFrom(ArrayList.class)) {
+            return ArrayList::new;
+        } else if (type == HashSet.class || type.isAssignableFrom(HashSet.class)) {
+            return HashSet::newHashSet;
+        } else if (type == LinkedHashSet.class) {
+            return LinkedHashSet::newLinkedHashSet;
+        } else if (type == ArrayDeque.class || type.isAssignableFrom(ArrayDeque.class)) {
+            return ArrayDeque::new;
+        } else if (type == TreeSet.class || type.isAssignableFrom(TreeSet.class)) {
+            return size -> new TreeSet<>();
+        }
+        IntFunction<Object> factory = constructorFactory(type);
+        return factory != null ? factory : ArrayList::new; // copied into the field type later, see StorageDataField
+    }
+
+    private static IntFunction<Object> mapFactory(Class<?> type) {
+        if (type == HashMap.class || type.isAssignableFrom(HashMap.class)) {
+            return HashMap::newHashMap;
+        } else if (type == LinkedHashMap.class) {
+            return LinkedHashMap::newLinkedHashMap;
+        } else if (type == TreeMap.class || type.isAssignableFrom(TreeMap.class)) {
+            return size -> new TreeMap<>();
+        }
+        IntFunction<Object> factory = constructorFactory(type);
+        return factory != null ? factory : HashMap::newHashMap;
+    }
+
+    private static IntFunction<Object> constructorFactory(Class<?> type) {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        try {
+            MethodHandle constructor = MethodHandles.publicLookup().findConstructor(type, MethodType.methodType(void.class)).asType(FACTORY_TYPE);
+            return size -> {
+                try {
+                    return (Object) constructor.invokeExact();
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t);
+                }
+            };
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private enum Kind {
+        VALUE,
+        COLLECTION,
+        MAP,
+        INT_OBJECT_MAP
+    }
+}
@@ -2,15 +2,15 @@ package de.erethon.bedrock.config.storage;
 
 import de.erethon.bedrock.chat.MessageUtil;
 import de.erethon.bedrock.misc.ClassUtil;
+import de.erethon.bedrock.misc.IntList;
+import de.erethon.bedrock.misc.IntObjectMap;
+import de.erethon.bedrock.misc.LongList;
+import de.erethon.bedrock.misc.LongLongMap;
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.FileConfiguration;
 
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 
@@ -21,123 +21,64 @@ import java.util.Objects;
 public final class StorageDataField {
 
     private final Object valueContainer;
-    private final Field field;
-    private final String path;
-    private final Class<?> type;
-    private final Class<?>[] keyTypes;
-    private final Class<?>[] valueTypes;
-    private final boolean initialize;
-    private final boolean log;
-    private final boolean debug;
-    private final Nullability nullability;
-    private final String forbiddenNullMessage;
-    private final StorageDataSave saveSetting;
+    private final StorageDataSchema.Entry entry;
     private Object initialValue;
     private int loadedHashCode;
 
-    StorageDataField(Object valueContainer, Field field, String subPath) {
-        StorageData annotation = field.getAnnotation(StorageData.class);
-        if (annotation == null) {
-            throw new IllegalArgumentException("Missing annotation " + StorageData.class.getName());
-        }
+    StorageDataField(Object valueContainer, StorageDataSchema.Entry entry) {
         this.valueContainer = valueContainer;
-        this.field = field;
-        this.path = finalPath(subPath, annotation.path());
-        Class<?> exactType = annotation.type();
-        this.type = ClassUtil.getClass(exactType != StorageData.DefaultTypeClass.class ? exactType : field.getType());
-        this.keyTypes = annotation.keyTypes();
-        this.valueTypes = annotation.valueTypes();
-        this.initialize = annotation.initialize();
-        this.log = annotation.log();
-        this.debug = annotation.debug();
-        this.nullability = annotation.nullability();
-        this.forbiddenNullMessage = annotation.forbiddenNullMessage().isEmpty() ? "Illegal null value at '" + path + "' was found" : annotation.forbiddenNullMessage();
-        this.saveSetting = annotation.save();
-    }
-
-    private String finalPath(String subPath, String path) {
-        if (path.contains("#")) {
-            if (subPath.isEmpty()) {
-                throw new IllegalArgumentException("Illegal character '#' found in path");
-            }
-            return subPath;
-        }
-        return subPath + (path.isEmpty() ? field.getName() : path);
+        this.entry = entry;
     }
 
     void loadInitialValue() throws IllegalAccessException {
         this.initialValue = getValue();
+        entry.computeDefault(initialValue);
     }
 
-    private Object serialize(Object value) throws NullPointerException {
-        if (value == null) {
-            return null;
-        }
-        StorageDataTranslator<?> translator = StorageDataTranslators.get(type);
-        return translator.serialize(value, type);
-    }
-
-    private Object deserialize(Object value, Class<?> type, int keyIndex, int valueIndex) throws NullPointerException {
-        StorageDataTranslator<?> translator = StorageDataTranslators.get(type);
-        Object deserialized = translator.deserialize(value, type);
-
-        if (deserialized instanceof Collection<?> list) {
-            if (list.isEmpty()) {
-                return list;
-            }
-            Collection<Object> deserializedList = new ArrayList<>(list.size());
-            for (Object serialized : list) {
-                Object element = deserialize(serialized, valueTypes.length <= valueIndex ? Object.class : valueTypes[valueIndex], keyIndex, valueIndex + 1);
-                deserializedList.add(element);
-            }
-            return deserializedList;
-        } else if (deserialized instanceof Map<?, ?> map) {
-            if (map.isEmpty()) {
-                return map;
-            }
-            Map<Object, Object> deserializedMap = new HashMap<>(map.size());
-            for (Object serializedKey : map.keySet()) {
-                Object key = deserialize(serializedKey, keyTypes.length <= keyIndex ? Object.class : keyTypes[keyIndex], keyIndex + 1, valueIndex);
-                Object v = deserialize(map.get(serializedKey), valueTypes.length <= valueIndex ? Object.class : valueTypes[valueIndex], keyIndex, valueIndex + 1);
-                deserializedMap.put(key, v);
-            }
-            return deserializedMap;
-        }
-        return deserialized;
-    }
-
-    void initialize(StorageDataContainer container) {
-        if (!initialize) {
-            return;
+    /**
+     * @return true if the value was written into the config, false otherwise
+     */
+    boolean initialize(ConfigurationSection config, boolean sparse) {
+        if (!entry.isInitialize() || sparse) {
+            return false;
         }
+        String path = entry.getPath();
         log("Initializing value '" + path + "'...");
         debug("Initializing value '" + initialValue + "' at '" + path + "'...");
 
-        FileConfiguration config = container.getConfig();
         if (config.contains(path)) {
             debug("Won't initialize value '" + path + "': Already present");
-            return;
+            return false;
         }
-        config.set(path, serialize(initialValue));
+        config.set(path, entry.serialize(initialValue));
+        return true;
     }
 
-    void load(StorageDataContainer container) throws NullPointerException, IllegalAccessException, InvocationTargetException, InstantiationException, NoSuchMethodException {
-        Object value = container.getConfig().get(path);
+    void load(ConfigurationSection config, boolean sparse) throws IllegalAccessException, InvocationTargetException, InstantiationException, NoSuchMethodException {
+        String path = entry.getPath();
+        Class<?> type = entry.getType();
+        boolean stored = !sparse || config.contains(path);
+        Object value;
+        if (stored) {
+            value = config.get(path);
+        } else { // the file doesn't contain default values, so the shared default has to be loaded instead
+            debug("Loading default value of '" + path + "': Not stored");
+            value = entry.getDefaultValue();
+        }
         if (value instanceof ConfigurationSection section) { // convert ConfigurationSection to Map<String, Object>
             value = section.getValues(false);
         }
         if (value != null) {
             try {
-                value = deserialize(value, type, 0, 0);
+                value = entry.deserialize(value);
             } catch (Exception e) {
-                e.printStackTrace();
-                value = null;
+                throw new InvocationTargetException(e, "Could not deserialize the value at '" + path + "'");
             }
         }
         if (value == null) {
-            switch (nullability) {
+            switch (entry.getNullability()) {
                 case FORBID:
-                    MessageUtil.log(forbiddenNullMessage);
+                    MessageUtil.log(entry.getForbiddenNullMessage());
                 case IGNORE:
                     debug("Won't load value '" + path + "': Null value");
                     return;
@@ -150,61 +91,107 @@ public final class StorageDataField {
         if (value instanceof Collection c) {
             if (initialValue instanceof Collection<?> list) { // check if the initial value is already a Collection
                 debug("Loading value '" + value + "' from '" + path + "'...");
+                if (!stored) {
+                    list.clear();
+                }
                 list.addAll(c);
                 return;
-            } else if (type != Object.class && type != ArrayList.class) {
-                Constructor<? extends Collection> constructor = (Constructor<? extends Collection>) type.getDeclaredConstructor(Collection.class);
-                constructor.setAccessible(true);
-                value = constructor.newInstance(value);
+            } else if (!type.isInstance(c)) { // the decode plan already creates the field type if possible
+                value = entry.copyCollection(c);
             }
         } else if (value instanceof Map m) { // check if the initial value is already a Map
             if (initialValue instanceof Map<?, ?> map) {
                 debug("Loading value '" + value + "' from '" + path + "'...");
+                if (!stored) {
+                    map.clear();
+                }
                 map.putAll(m);
                 return;
-            } else if (type != Object.class && type != HashMap.class) {
-                Constructor<? extends Map> constructor = (Constructor<? extends Map>) type.getDeclaredConstructor(Map.class);
-                constructor.setAccessible(true);
-                value = constructor.newInstance(value);
+            } else if (!type.isInstance(m)) {
+                value = entry.copyMap(m);
             }
+        } else if (replaceContents(initialValue, value)) { // keep the instance of final primitive collections
+            debug("Loading value '" + value + "' from '" + path + "'...");
+            return;
         }
         log("Loading value '" + path + "'...");
         debug("Loading value '" + value + "' from '" + path + "'...");
 
-        field.set(valueContainer, value);
+        setValue(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean replaceContents(Object target, Object value) {
+        if (target instanceof IntList list && value instanceof IntList loaded) {
+            list.clear();
+            list.addAll(loaded);
+        } else if (target instanceof LongList list && value instanceof LongList loaded) {
+            list.clear();
+            list.addAll(loaded);
+        } else if (target instanceof LongLongMap map && value instanceof LongLongMap loaded) {
+            map.clear();
+            map.putAll(loaded);
+        } else if (target instanceof IntObjectMap<?> map && value instanceof IntObjectMap<?> loaded) {
+            map.clear();
+            ((IntObjectMap<Object>) map).putAll(loaded);
+        } else {
+            return false;
+        }
+        return true;
     }
 
-    void save(StorageDataContainer container) throws IllegalAccessException {
+    /**
+     * @return true if the config was changed, false otherwise
+     */
+    boolean save(ConfigurationSection config, boolean sparse) throws IllegalAccessException {
+        StorageDataSave saveSetting = entry.getSaveSetting();
         if (saveSetting == StorageDataSave.NONE) {
-            return;
+            return false;
         }
         Object value = getValue();
-        if (saveSetting == StorageDataSave.CHANGES && loadedHashCode == Objects.hash(value)) {
+        String path = entry.getPath();
+        int hashCode = Objects.hash(value);
+        if (saveSetting == StorageDataSave.CHANGES && loadedHashCode == hashCode) {
             debug("Won't save value '" + path + "': No changes found");
-            return;
+            return false;
         }
         if (value == null) {
+            Nullability nullability = entry.getNullability();
             if (nullability == Nullability.IGNORE | nullability == Nullability.FORBID) {
                 debug("Won't save value '" + path + "': Null value");
-                return;
+                return false;
             }
         } else {
-            value = serialize(value);
+            value = entry.serialize(value);
+        }
+        loadedHashCode = hashCode; // the saved value is the new reference for upcoming changes
+        if (sparse && entry.isDefault(value)) {
+            if (!config.contains(path)) {
+                return false;
+            }
+            debug("Removing value '" + path + "': Default value");
+            config.set(path, null);
+            return true;
+        }
+        if (Objects.equals(config.get(path), value)) {
+            debug("Won't save value '" + path + "': Already present");
+            return false;
         }
         log("Saving value '" + path + "'...");
         debug("Saving value '" + value + "' at '" + path + "'...");
 
-        container.getConfig().set(path, value);
+        config.set(path, value);
+        return true;
     }
 
     private void log(String msg) {
-        if (log) {
+        if (entry.isLog()) {
             MessageUtil.log(msg);
         }
     }
 
     private void debug(String msg) {
-        if (debug) {
+        if (entry.isDebug()) {
             MessageUtil.log(msg);
         }
     }
@@ -223,77 +210,77 @@ public final class StorageDataField {
      * @return the object field
      */
     public Field getField() {
-        return field;
+        return entry.getField();
     }
 
     /**
      * @return the object type
      */
     public Class<?> getType() {
-        return type;
+        return entry.getType();
     }
 
     /**
      * @return the map key types
      */
     public Class<?>[] getKeyTypes() {
-        return keyTypes;
+        return entry.getKeyTypes();
     }
 
     /**
      * @return the map/collection value types
      */
     public Class<?>[] getValueTypes() {
-        return valueTypes;
+        return entry.getValueTypes();
     }
 
     /**
      * @return the path where the object is stored at
      */
     public String getPath() {
-        return path;
+        return entry.getPath();
     }
 
     /**
      * @return true if the config value will get initialized, false otherwise
      */
     public boolean isInitialize() {
-        return initialize;
+        return entry.isInitialize();
     }
 
     /**
      * @return true if the storing process will get logged, false otherwise
      */
     public boolean isLog() {
-        return log;
+        return entry.isLog();
     }
 
     /**
      * @return true if storing process will get debugged, false otherwise
      */
     public boolean isDebug() {
-        return debug;
+        return entry.isDebug();
     }
 
     /**
      * @return the nullability of the object value
      */
     public Nullability getNullability() {
-        return nullability;
+        return entry.getNullability();
     }
 
     /**
      * @return the message for forbidden nullability
      */
     public String getForbiddenNullMessage() {
-        return forbiddenNullMessage;
+        return entry.getForbiddenNullMessage();
     }
 
     /**
      * @return the save setting
      */
     public StorageDataSave getSaveSetting() {
-        return saveSetting;
+        return entry.getSaveSetting();
     }
 
     /**
@@ -304,15 +291,26 @@ public final class StorageDataField {
     }
 
     /**
-     * @return the hash code of the loaded value
+     * @return the hash code of the loaded or last saved value
      */
     public int getLoadedHashCode() {
         return loadedHashCode;
     }
 
+    /**
+     * @return the cached schema entry of this field
+     * @since 1.5.18
+     */
+    public StorageDataSchema.Entry getEntry() {
+        return entry;
+    }
+
     private Object getValue() throws IllegalAccessException {
-        field.setAccessible(true);
-        return field.get(valueContainer);
+        return entry.get(valueContainer);
+    }
+
+    private void setValue(Object value) throws IllegalAccessException {
+        entry.set(valueContainer, value);
     }
 
 }
@@ -0,0 +1,163 @@
+package de.erethon.bedrock.config.storage;
+
+import de.erethon.bedrock.chat.MessageUtil;
+import de.erethon.bedrock.config.EConfig;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Loads all {@link StorageDataContainer}s of a directory in parallel, e.g. one container per dungeon, guild or warp.
+ * <br>
+ * The directory is walked once, the files are then parsed on a fork-join pool using all cores. A file that fails to
+ * load doesn't affect the other files, its exception is collected in the {@link Result} instead. This includes
+ * {@link EConfig}s that report a {@link EConfig#getLoadError() load error}, e.g. because the file couldn't be parsed.
+ * <br>
+ * The factory is called off the main thread, so it must only create and load the container and must not access
+ * the world or other server state:
+ *
+ * <blockquote><pre>
+ *     // the Guild constructor calls defaultLoadProcess()
+ *     StorageDataLoader.loadAllAsync(plugin, new File(getDataFolder(), "guilds"), ".yml", Guild::new,
+ *             result -&gt; result.loaded().forEach(guildCache::add));
+ * </pre></blockquote>
+ *
+ * @since 1.5.18
+ */
+public class StorageDataLoader {
+
+    /**
+     * Loads all files in the directory and its subdirectories with the given file extension, using one thread per core.
+     *
+     * @see #loadAll(File, String, Function, int)
+     */
+    public static <T> @NotNull Result<T> loadAll(@NotNull File directory, @NotNull String extension, @NotNull Function<File, T> factory) {
+        return loadAll(directory, extension, factory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Loads all files in the directory and its subdirectories with the given file extension and waits until all
+     * files are loaded.
+     *
+     * @param directory the directory to load the files from
+     * @param extension the file extension, e.g. {@code ".yml"}
+     * @param factory creates and loads the container of a file
+     * @param parallelism the amount of threads to load the files with
+     * @param <T> the container type
+     * @return the loaded containers and the files that failed to load, which is incomplete if the directory couldn't
+     *         be read or the current thread was interrupted
+     */
+    public static <T> @NotNull Result<T> loadAll(@NotNull File directory, @NotNull String extension, @NotNull Function<File, T> factory, int parallelism) {
+        long start = System.nanoTime();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory.toPath())) {
+            files = walk.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().endsWith(extension))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            MessageUtil.log("&4Could not read the directory &6" + directory.getPath() + "&4...");
+            e.printStackTrace();
+            return new Result<>(List.of(), Map.of(), false, Duration.ofNanos(System.nanoTime() - start));
+        }
+        List<Outcome<T>> outcomes;
+        boolean complete = true;
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            outcomes = pool.submit(() -> files.parallelStream().map(path -> load(path.toFile(), factory)).toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // keep the interrupt for the caller
+            pool.shutdownNow();
+            outcomes = List.of();
+            complete = false;
+        } catch (ExecutionException e) {
+            // per file errors are caught in load(), so this shouldn't happen
+            e.printStackTrace();
+            outcomes = List.of();
+            complete = false;
+        } finally {
+            pool.shutdown();
+        }
+        List<T> loaded = new ArrayList<>(outcomes.size());
+        Map<File, Throwable> failed = new LinkedHashMap<>();
+        for (Outcome<T> outcome : outcomes) {
+            if (outcome.error == null) {
+                if (outcome.container != null) {
+                    loaded.add(outcome.container);
+                }
+            } else {
+                failed.put(outcome.file, outcome.error);
+            }
+        }
+        return new Result<>(Collections.unmodifiableList(loaded), Collections.unmodifiableMap(failed), complete, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Loads all files in the directory and its subdirectories with the given file extension asynchronously and
+     * passes the result to the callback on the main thread. Failed files are logged before the callback is called.
+     *
+     * @param plugin the plugin to schedule the tasks with
+     * @param directory the directory to load the files from
+     * @param extension the file extension, e.g. {@code ".yml"}
+     * @param factory creates and loads the container of a file
+     * @param callback receives the result on the main thread
+     * @param <T> the container type
+     */
+    public static <T> void loadAllAsync(@NotNull Plugin plugin, @NotNull File directory, @NotNull String extension, @NotNull Function<File, T> factory,
+                                        @NotNull Consumer<Result<T>> callback) {
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            Result<T> result = loadAll(directory, extension, factory);
+            result.failed().forEach((file, error) -> {
+                MessageUtil.log("&4Could not load &6" + file.getPath() + "&4...");
+                error.printStackTrace();
+            });
+            if (!result.complete()) {
+                MessageUtil.log("&4Could not load all files of &6" + directory.getPath() + "&4...");
+            }
+            Bukkit.getScheduler().runTask(plugin, () -> callback.accept(result));
+        });
+    }
+
+    private static <T> Outcome<T> load(File file, Function<File, T> factory) {
+        try {
+            T container = factory.apply(file);
+            if (container instanceof EConfig config && config.getLoadError() != null) {
+                return new Outcome<>(file, null, config.getLoadError());
+            }
+            return new Outcome<>(file, container, null);
+        } catch (RuntimeException e) {
+            return new Outcome<>(file, null, e);
+        }
+    }
+
+    private record Outcome<T>(File file, T container, Throwable error) {}
+
+    /**
+     * The result of a bulk load.
+     *
+     * @param loaded the loaded containers, ordered by their file path
+     * @param failed the files that failed to load, mapped to the exception
+     * @param complete false if loading was aborted, e.g. because the thread was interrupted, in which case
+     *                 {@code loaded} and {@code failed} don't cover all files
+     * @param duration the time it took to load all files
+     * @param <T> the container type
+     */
+    public record Result<T>(@NotNull List<T> loaded, @NotNull Map<File, Throwable> failed, boolean complete, @NotNull Duration duration) {
+    }
+}
@@ -0,0 +1,471 @@
+package de.erethon.bedrock.config.storage;
+
+import de.erethon.bedrock.misc.ClassUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The immutable result of scanning a class for {@link StorageData} and {@link AdditionalContainer} fields.
+ * <br>
+ * Schemas are created once per class and sub path and cached afterwards, so that containers of the same class only
+ * have to bind their own instance to the cached entries instead of repeating the annotation scan.
+ * <br>
+ * If the {@link StorageDataAccessor} generated for the class exists, the fields and their annotation values are taken
+ * from it and accessed through its generated code, so the class isn't scanned with reflection at all. Otherwise the
+ * declared fields are scanned and accessed through reflective method handles, which are resolved once per field.
+ *
+ * @since 1.5.18
+ */
+public final class StorageDataSchema {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType COLLECTION_CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Collection.class);
+    private static final MethodType MAP_CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Map.class);
+
+    // the accessors generated by the annotation processor, if present
+    private static final ClassValue<Optional<StorageDataAccessor>> ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Optional<StorageDataAccessor> computeValue(Class<?> type) {
+            try {
+                Class<?> generated = Class.forName(type.getName() + StorageDataAccessor.SUFFIX, true, type.getClassLoader());
+                if (!StorageDataAccessor.class.isAssignableFrom(generated)) {
+                    return Optional.empty();
+                }
+                return Optional.of((StorageDataAccessor) generated.getDeclaredConstructor().newInstance());
+            } catch (ClassNotFoundException e) {
+                return Optional.empty();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                e.printStackTrace();
+                return Optional.empty();
+            }
+        }
+    };
+
+    private static final ClassValue<Map<String, StorageDataSchema>> SCHEMAS = new ClassValue<>() {
+        @Override
+        protected Map<String, StorageDataSchema> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final Class<?> type;
+    private final String subPath;
+    private final List<Entry> entries;
+    private final List<Additional> additionalContainers;
+
+    private StorageDataSchema(Class<?> type, String subPath) {
+        this.type = type;
+        this.subPath = subPath;
+        List<Entry> entries = new ArrayList<>();
+        List<Additional> additionalContainers = new ArrayList<>();
+        StorageDataAccessor accessor = ACCESSORS.get(type).orElse(null);
+        if (accessor != null) {
+            for (StorageDataAccessor.DataField field : accessor.getFields()) {
+                try {
+                    entries.add(new Entry(type, field, subPath));
+                } catch (IllegalArgumentException e) {
+                    e.printStackTrace();
+                }
+            }
+            for (StorageDataAccessor.ContainerField field : accessor.getAdditionalContainers()) {
+                additionalContainers.add(new Additional(field, subPath + field.getSubPath()));
+            }
+        } else {
+            for (Field field : type.getDeclaredFields()) {
+                if (field.isAnnotationPresent(StorageData.class)) {
+                    try {
+                        entries.add(new Entry(type, reflectiveField(field), subPath));
+                    } catch (IllegalArgumentException e) {
+                        e.printStackTrace();
+                    }
+                    continue;
+                }
+                AdditionalContainer additional = field.getAnnotation(AdditionalContainer.class);
+                if (additional != null) {
+                    additionalContainers.add(new Additional(reflectiveContainer(field, additional), subPath + additional.subPath()));
+                }
+            }
+        }
+        this.entries = List.copyOf(entries);
+        this.additionalContainers = List.copyOf(additionalContainers);
+    }
+
+    /**
+     * @param type the class to get the schema of
+     * @return the cached schema of the class
+     */
+    public static @NotNull StorageDataSchema of(@NotNull Class<?> type) {
+        return of(type, "");
+    }
+
+    /**
+     * @param type the class to get the schema of
+     * @param subPath the sub path all paths of the schema are prefixed with
+     * @return the cached schema of the class
+     */
+    public static @NotNull StorageDataSchema of(@NotNull Class<?> type, @NotNull String subPath) {
+        return SCHEMAS.get(type).computeIfAbsent(subPath, path -> new StorageDataSchema(type, path));
+    }
+
+    /**
+     * Creates the data fields of the given object and of its additional containers.
+     *
+     * @param valueContainer the object to bind the fields to
+     * @param target the list to add the fields to
+     */
+    void bind(Object valueContainer, List<StorageDataField> target) {
+        for (Entry entry : entries) {
+            target.add(new StorageDataField(valueContainer, entry));
+        }
+        for (Additional additional : additionalContainers) {
+            Object container = additional.field.get(valueContainer);
+            if (container != null) { // the runtime class of the value decides about its schema
+                of(container.getClass(), additional.subPath).bind(container, target);
+            }
+        }
+    }
+
+    /**
+     * @return the class of this schema
+     */
+    public @NotNull Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return the sub path all paths of this schema are prefixed with
+     */
+    public @NotNull String getSubPath() {
+        return subPath;
+    }
+
+    /**
+     * @return the storage data entries declared by the class
+     */
+    public @NotNull List<Entry> getEntries() {
+        return entries;
+    }
+
+    /* reflection */
+
+    private static StorageDataAccessor.DataField reflectiveField(Field field) {
+        field.setAccessible(true);
+        MethodHandle getter = getter(field);
+        MethodHandle setter = setter(field);
+        return new StorageDataAccessor.DataField(field.getName(), field.getType(), field.getAnnotation(StorageData.class), setter != null) {
+            @Override
+            public Object get(Object container) {
+                return invokeGetter(getter, container);
+            }
+
+            @Override
+            public void set(Object container, Object value) {
+                if (setter == null) {
+                    super.set(container, value);
+                    return;
+                }
+                try {
+                    setter.invokeExact(container, value);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t);
+                }
+            }
+        };
+    }
+
+    private static StorageDataAccessor.ContainerField reflectiveContainer(Field field, AdditionalContainer annotation) {
+        field.setAccessible(true);
+        MethodHandle getter = getter(field);
+        return new StorageDataAccessor.ContainerField(field.getName(), annotation.subPath()) {
+            @Override
+            public Object get(Object container) {
+                return invokeGetter(getter, container);
+            }
+        };
+    }
+
+    private static MethodHandle getter(Field field) {
+        try {
+            MethodHandle getter = LOOKUP.unreflectGetter(field);
+            if (Modifier.isStatic(field.getModifiers())) {
+                getter = MethodHandles.dropArguments(getter, 0, Object.class);
+            }
+            return getter.asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Field " + field.getName() + " can't be accessed", e);
+        }
+    }
+
+    private static MethodHandle setter(Field field) {
+        try {
+            MethodHandle setter = LOOKUP.unreflectSetter(field);
+            if (Modifier.isStatic(field.getModifiers())) {
+                setter = MethodHandles.dropArguments(setter, 0, Object.class);
+            }
+            return setter.asType(SETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            return null; // e.g. static final fields, which can still be filled if they contain a collection or map
+        }
+    }
+
+    private static Object invokeGetter(MethodHandle getter, Object valueContainer) {
+        try {
+            return (Object) getter.invokeExact(valueContainer);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private record Additional(StorageDataAccessor.ContainerField field, String subPath) {}
+
+    /**
+     * The immutable description of a single {@link StorageData} field.
+     */
+    public static final class Entry {
+
+        private final Class<?> owner;
+        private final StorageDataAccessor.DataField access;
+        private volatile Field field;
+        private final String path;
+        private final Class<?> type;
+        private final Class<?>[] keyTypes;
+        private final Class<?>[] valueTypes;
+        private final boolean initialize;
+        private final boolean log;
+        private final boolean debug;
+        private final Nullability nullability;
+        private final String forbiddenNullMessage;
+        private final StorageDataSave saveSetting;
+        private volatile MethodHandle copyConstructor;
+        private volatile StorageDataDecodePlan decodePlan;
+        private volatile boolean defaultComputed;
+        private volatile Object defaultValue;
+
+        private Entry(Class<?> owner, StorageDataAccessor.DataField access, String subPath) {
+            StorageData annotation = access.getAnnotation();
+            if (annotation == null) {
+                throw new IllegalArgumentException("Missing annotation " + StorageData.class.getName());
+            }
+            this.owner = owner;
+            this.access = access;
+            this.path = finalPath(access.getName(), subPath, annotation.path());
+            Class<?> exactType = annotation.type();
+            this.type = ClassUtil.getClass(exactType != StorageData.DefaultTypeClass.class ? exactType : access.getType());
+            this.keyTypes = annotation.keyTypes();
+            this.valueTypes = annotation.valueTypes();
+            this.initialize = annotation.initialize();
+            this.log = annotation.log();
+            this.debug = annotation.debug();
+            this.nullability = annotation.nullability();
+            this.forbiddenNullMessage = annotation.forbiddenNullMessage().isEmpty() ? "Illegal null value at '" + path + "' was found" : annotation.forbiddenNullMessage();
+            this.saveSetting = annotation.save();
+        }
+
+        private static String finalPath(String fieldName, String subPath, String path) {
+            if (path.contains("#")) {
+                if (subPath.isEmpty()) {
+                    throw new IllegalArgumentException("Illegal character '#' found in path");
+                }
+                return subPath;
+            }
+            return subPath + (path.isEmpty() ? fieldName : path);
+        }
+
+        Object get(Object valueContainer) {
+            return access.get(valueContainer);
+        }
+
+        void set(Object valueContainer, Object value) throws IllegalAccessException {
+            if (!access.isWritable()) {
+                throw new IllegalAccessException("Field " + access.getName() + " is final");
+            }
+            access.set(valueContainer, value);
+        }
+
+        /**
+         * Creates an instance of the field type containing the values of the given Collection.
+         */
+        Object copyCollection(Collection<?> values) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+            return invokeCopyConstructor(copyConstructor(Collection.class, COLLECTION_CONSTRUCTOR_TYPE), values);
+        }
+
+        /**
+         * Creates an instance of the field type containing the entries of the given Map.
+         */
+        Object copyMap(Map<?, ?> values) throws NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+            return invokeCopyConstructor(copyConstructor(Map.class, MAP_CONSTRUCTOR_TYPE), values);
+        }
+
+        // resolved lazily, as only collection and map types need it
+        private MethodHandle copyConstructor(Class<?> parameter, MethodType methodType) throws NoSuchMethodException, IllegalAccessException {
+            MethodHandle constructor = copyConstructor;
+            if (constructor == null) {
+                Constructor<?> reflected = type.getDeclaredConstructor(parameter);
+                reflected.setAccessible(true);
+                constructor = LOOKUP.unreflectConstructor(reflected).asType(methodType);
+                copyConstructor = constructor;
+            }
+            return constructor;
+        }
+
+        private static Object invokeCopyConstructor(MethodHandle constructor, Object argument) throws InvocationTargetException {
+            try {
+                return constructor.invoke(argument);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+
+        /**
+         * Stores the serialized initial value of the first bound instance as the default value of this entry,
+         * which all sparse containers of the class compare their values with.
+         */
+        void computeDefault(Object initialValue) {
+            if (defaultComputed) {
+                return;
+            }
+            synchronized (this) {
+                if (!defaultComputed) {
+                    defaultValue = serialize(initialValue);
+                    defaultComputed = true;
+                }
+            }
+        }
+
+        /**
+         * @return a copy of the serialized default value, which sparse containers load for values that are not stored
+         */
+        Object getDefaultValue() {
+            return copySerialized(defaultValue);
+        }
+
+        private static Object copySerialized(Object value) {
+            if (value instanceof List<?> list) {
+                List<Object> copy = new ArrayList<>(list.size());
+                for (Object element : list) {
+                    copy.add(copySerialized(element));
+                }
+                return copy;
+            } else if (value instanceof Map<?, ?> map) {
+                Map<Object, Object> copy = new LinkedHashMap<>(Math.max(16, (int) (map.size() / 0.75f) + 1));
+                map.forEach((k, v) -> copy.put(k, copySerialized(v)));
+                return copy;
+            }
+            return value;
+        }
+
+        /**
+         * @param serialized a serialized value
+         * @return true if the value equals the serialized default value, false otherwise
+         */
+        boolean isDefault(Object serialized) {
+            return defaultComputed && Objects.equals(defaultValue, serialized);
+        }
+
+        Object serialize(Object value) {
+            if (value == null) {
+                return null;
+            }
+            StorageDataTranslator<?> translator = StorageDataTranslators.get(type);
+            return translator.serialize(value, type);
+        }
+
+        Object deserialize(Object value) {
+            StorageDataDecodePlan plan = decodePlan;
+            if (plan == null || !plan.isCurrent()) {
+                plan = StorageDataDecodePlan.compile(type, keyTypes, valueTypes);
+                decodePlan = plan;
+            }
+            return plan.decode(value);
+        }
+
+        /* getter */
+
+        /**
+         * Returns the reflected field, which is only looked up on the first call if the class has a generated
+         * {@link StorageDataAccessor}.
+         *
+         * @return the reflected field
+         */
+        public @NotNull Field getField() {
+            Field reflected = field;
+            if (reflected == null) {
+                try {
+                    reflected = owner.getDeclaredField(access.getName());
+                } catch (NoSuchFieldException e) {
+                    throw new IllegalStateException("The generated accessor of " + owner.getName() + " is outdated", e);
+                }
+                field = reflected;
+            }
+            return reflected;
+        }
+
+        /**
+         * @return the name of the field
+         */
+        public @NotNull String getName() {
+            return access.getName();
+        }
+
+        public @NotNull String getPath() {
+            return path;
+        }
+
+        public @NotNull Class<?> getType() {
+            return type;
+        }
+
+        public Class<?>[] getKeyTypes() {
+            return keyTypes;
+        }
+
+        public Class<?>[] getValueTypes() {
+            return valueTypes;
+        }
+
+        public boolean isInitialize() {
+            return initialize;
+        }
+
+        public boolean isLog() {
+            return log;
+        }
+
+        public boolean isDebug() {
+            return debug;
+        }
+
+        public @NotNull Nullability getNullability() {
+            return nullability;
+        }
+
+        public @NotNull String getForbiddenNullMessage() {
+            return forbiddenNullMessage;
+        }
+
+        public @NotNull StorageDataSave getSaveSetting() {
+            return saveSetting;
+        }
+    }
+}
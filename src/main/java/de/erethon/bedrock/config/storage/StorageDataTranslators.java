@@ -2,11 +2,16 @@ package de.erethon.bedrock.config.storage;
 
 import de.erethon.bedrock.config.ConfigUtil;
 import de.erethon.bedrock.misc.ClassUtil;
+import de.erethon.bedrock.misc.IntList;
+import de.erethon.bedrock.misc.IntObjectMap;
+import de.erethon.bedrock.misc.LongList;
+import de.erethon.bedrock.misc.LongLongMap;
 import de.erethon.bedrock.misc.StringIgnoreCase;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.util.NumberConversions;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -15,12 +20,21 @@ import java.io.ObjectInput;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class manages the registrations for {@link StorageDataTranslator}s
@@ -30,7 +44,9 @@ import java.util.UUID;
  */
 public class StorageDataTranslators {
 
-    private static final Map<Class<?>, StorageDataTranslator<?>> dataTranslators = new HashMap<>();
+    private static final Map<Class<?>, StorageDataTranslator<?>> dataTranslators = new ConcurrentHashMap<>();
+    private static volatile ClassValue<Optional<StorageDataTranslator<?>>> resolved = newResolutionCache();
+    private static final AtomicInteger version = new AtomicInteger();
 
     static {
         registerDataTranslator(new StorageDataTranslator<>(Boolean.class, o -> o, o -> (boolean) o));
@@ -94,6 +110,60 @@ public class StorageDataTranslators {
             });
             return serializedMap;
         }, ConfigUtil::getMap));
+        // primitive collections are read straight into their arrays, without an intermediate list or map
+        registerDataTranslator(new StorageDataTranslator<>(IntList.class, o -> {
+            IntList list = (IntList) o;
+            List<Integer> serialized = new ArrayList<>(list.size());
+            list.forEach(serialized::add);
+            return serialized;
+        }, o -> {
+            Collection<?> serialized = o instanceof Collection<?> c ? c : List.of();
+            IntList list = new IntList(serialized.size());
+            for (Object element : serialized) {
+                list.add(NumberConversions.toInt(element));
+            }
+            return list;
+        }));
+        registerDataTranslator(new StorageDataTranslator<>(LongList.class, o -> {
+            LongList list = (LongList) o;
+            List<Long> serialized = new ArrayList<>(list.size());
+            list.forEach(serialized::add);
+            return serialized;
+        }, o -> {
+            Collection<?> serialized = o instanceof Collection<?> c ? c : List.of();
+            LongList list = new LongList(serialized.size());
+            for (Object element : serialized) {
+                list.add(NumberConversions.toLong(element));
+            }
+            return list;
+        }));
+        registerDataTranslator(new StorageDataTranslator<>(LongLongMap.class, o -> {
+            LongLongMap map = (LongLongMap) o;
+            Map<String, Object> serialized = new LinkedHashMap<>(Math.max(16, map.size() * 2));
+            map.forEach((key, value) -> serialized.put(String.valueOf(key), value));
+            return serialized;
+        }, o -> {
+            Map<?, ?> serialized = ConfigUtil.getMap(o);
+            LongLongMap map = new LongLongMap(serialized.size());
+            serialized.forEach((key, value) -> map.put(Long.parseLong(key.toString()), NumberConversions.toLong(value)));
+            return map;
+        }));
+        registerDataTranslator(new StorageDataTranslator<>(IntObjectMap.class, o -> {
+            IntObjectMap<?> map = (IntObjectMap<?>) o;
+            Map<String, Object> serialized = new LinkedHashMap<>(Math.max(16, map.size() * 2));
+            map.forEach((key, value) -> serialized.put(String.valueOf(key), get(value.getClass()).serialize(value, value.getClass())));
+            return serialized;
+        }, o -> {
+            // the values are deserialized with the value type of the field afterwards
+            Map<?, ?> serialized = ConfigUtil.getMap(o);
+            IntObjectMap<Object> map = new IntObjectMap<>(serialized.size());
+            serialized.forEach((key, value) -> {
+                if (value != null) {
+                    map.put(Integer.parseInt(key.toString()), value);
+                }
+            });
+            return map;
+        }));
         registerDataTranslator(new StorageDataTranslator<>(Enum.class, (Object o) -> ((Enum<?>) o).name(), (o, t) -> {
             if (t.isEnum()) {
                 for (Object enumConstant : t.getEnumConstants()) {
@@ -133,6 +203,15 @@ public class StorageDataTranslators {
      */
     public static void registerDataTranslator(@NotNull StorageDataTranslator<?> translator) {
         dataTranslators.put(ClassUtil.getClass(translator.getType()), translator);
+        resolved = newResolutionCache(); // previously resolved types might match the new translator more closely
+        version.incrementAndGet();
+    }
+
+    /**
+     * @return the amount of translator registrations, used to detect outdated {@link StorageDataDecodePlan}s
+     */
+    static int getVersion() {
+        return version.get();
     }
 
     /**
@@ -141,22 +220,67 @@ public class StorageDataTranslators {
      *
      * @param type the type
      * @return the matching StorageDataTranslator for the provided type
+     * @see #find(Class)
      */
     public static @NotNull StorageDataTranslator<?> get(@NotNull Class<?> type) {
-        StorageDataTranslator<?> translator = dataTranslators.get(ClassUtil.getClass(type));
-        if (translator == null) {
-            if (type.isEnum()) {
-                return dataTranslators.get(Enum.class);
+        StorageDataTranslator<?> translator = find(type);
+        return translator != null ? translator : dataTranslators.get(Object.class);
+    }
+
+    /**
+     * Returns the StorageDataTranslator registered for the closest type in the hierarchy of the provided type.
+     * Superclasses are checked before interfaces, the {@link Serializable} translator is only used for the exact type.
+     * <br>
+     * Results are cached per type, including types without a matching translator.
+     *
+     * @param type the type
+     * @return the matching StorageDataTranslator, or null if there is none
+     * @since 1.5.18
+     */
+    public static @Nullable StorageDataTranslator<?> find(@NotNull Class<?> type) {
+        return resolved.get(type).orElse(null);
+    }
+
+    private static ClassValue<Optional<StorageDataTranslator<?>>> newResolutionCache() {
+        return new ClassValue<>() {
+            @Override
+            protected Optional<StorageDataTranslator<?>> computeValue(Class<?> type) {
+                return Optional.ofNullable(resolve(ClassUtil.getClass(type)));
+            }
+        };
+    }
+
+    private static StorageDataTranslator<?> resolve(Class<?> type) {
+        StorageDataTranslator<?> exact = dataTranslators.get(type);
+        if (exact != null) {
+            return exact;
+        }
+        for (Class<?> superclass = type.getSuperclass(); superclass != null && superclass != Object.class; superclass = superclass.getSuperclass()) {
+            StorageDataTranslator<?> translator = dataTranslators.get(superclass);
+            if (translator != null) {
+                return translator;
             }
-            if (ClassUtil.isImplementing(type, Collection.class)) {
-                return dataTranslators.get(Collection.class);
+        }
+        // breadth-first, so that the most specific interfaces are checked first
+        Deque<Class<?>> queue = new ArrayDeque<>();
+        Set<Class<?>> visited = new HashSet<>();
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            queue.addAll(Arrays.asList(current.getInterfaces()));
+        }
+        while (!queue.isEmpty()) {
+            Class<?> anInterface = queue.poll();
+            if (!visited.add(anInterface)) {
+                continue;
             }
-            if (ClassUtil.isImplementing(type, Map.class)) {
-                return dataTranslators.get(Map.class);
+            if (anInterface != Serializable.class) { // implemented by nearly everything
+                StorageDataTranslator<?> translator = dataTranslators.get(anInterface);
+                if (translator != null) {
+                    return translator;
+                }
             }
-            return dataTranslators.get(Object.class);
+            queue.addAll(Arrays.asList(anInterface.getInterfaces()));
         }
-        return translator;
+        return null;
     }
 
 }
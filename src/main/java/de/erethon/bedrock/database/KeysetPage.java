@@ -0,0 +1,39 @@
+package de.erethon.bedrock.database;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * A page fetched by a {@link KeysetPaginator}.
+ *
+ * @param items the rows of the page
+ * @param nextCursor the cursor of the next page, or null if this is the last page
+ * @param previousCursor the cursor of the previous page, or null if this is the first page
+ * @param <T> the row type
+ * @since 1.5.18
+ */
+public record KeysetPage<T>(@NotNull List<T> items, @Nullable String nextCursor, @Nullable String previousCursor) {
+
+    /**
+     * @return true if there is a next page, false otherwise
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * @return true if there is a previous page, false otherwise
+     */
+    public boolean hasPrevious() {
+        return previousCursor != null;
+    }
+
+    /**
+     * @return true if the page contains no rows, false otherwise
+     */
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+}
@@ -0,0 +1,247 @@
+package de.erethon.bedrock.database;
+
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.Query;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Fetches pages of a query by seeking to the last row of the previous page instead of using {@code OFFSET}.
+ * <br>
+ * Rows are ordered by a sort column and a unique id column as tie-breaker. Every page continues after the
+ * {@code (sort, id)} pair encoded in the cursor of the previous page, so that the database only reads the rows of the
+ * requested page. With an index on {@code (sort, id)}, page n costs the same as the first page.
+ * <br>
+ * Cursors are opaque url-safe strings, which can be stored in GUIs or passed as command arguments:
+ *
+ * <blockquote><pre>
+ *     KeysetPaginator&lt;Mail&gt; paginator = new KeysetPaginator&lt;&gt;(database, "mails", "*", "sent_at", "id", true,
+ *             mailMapper, Mail::getSentAt, Mail::getId).where("receiver = :receiver");
+ *     paginator.fetchAsync(cursor, 10, Map.of("receiver", uuid)).thenAccept(page -> ...);
+ * </pre></blockquote>
+ *
+ * Supported key types are numbers, strings, uuids, {@link Instant}s and {@link Timestamp}s. Keys must not be null.
+ *
+ * @param <T> the row type
+ * @since 1.5.18
+ */
+public class KeysetPaginator<T> {
+
+    private static final byte VERSION = 1;
+    private static final byte FORWARD = 0;
+    private static final byte BACKWARD = 1;
+
+    private final EDatabaseManager database;
+    private final String from;
+    private final String columns;
+    private final String sortColumn;
+    private final String idColumn;
+    private final boolean descending;
+    private final RowMapper<T> mapper;
+    private final Function<T, Object> sortKey;
+    private final Function<T, Object> idKey;
+    private String where;
+
+    /**
+     * @param database the database to query
+     * @param from the table or join to select from
+     * @param columns the selected columns
+     * @param sortColumn the column to order by
+     * @param idColumn the unique column to order rows with the same sort key by
+     * @param descending whether to order descending
+     * @param mapper the mapper of the selected rows
+     * @param sortKey returns the sort key of a mapped row
+     * @param idKey returns the id of a mapped row
+     */
+    public KeysetPaginator(@NotNull EDatabaseManager database, @NotNull String from, @NotNull String columns, @NotNull String sortColumn,
+                           @NotNull String idColumn, boolean descending, @NotNull RowMapper<T> mapper,
+                           @NotNull Function<T, Object> sortKey, @NotNull Function<T, Object> idKey) {
+        this.database = database;
+        this.from = from;
+        this.columns = columns;
+        this.sortColumn = sortColumn;
+        this.idColumn = idColumn;
+        this.descending = descending;
+        this.mapper = mapper;
+        this.sortKey = sortKey;
+        this.idKey = idKey;
+    }
+
+    /**
+     * Sets an additional condition, which may contain named parameters bound by the fetch arguments.
+     *
+     * @param where the condition, or null
+     * @return this paginator
+     */
+    public @NotNull KeysetPaginator<T> where(@Nullable String where) {
+        this.where = where;
+        return this;
+    }
+
+    /**
+     * @see #fetch(Handle, String, int, Map)
+     */
+    public @NotNull CompletableFuture<KeysetPage<T>> fetchAsync(@Nullable String cursor, int pageSize) {
+        return fetchAsync(cursor, pageSize, Map.of());
+    }
+
+    /**
+     * @see #fetch(Handle, String, int, Map)
+     */
+    public @NotNull CompletableFuture<KeysetPage<T>> fetchAsync(@Nullable String cursor, int pageSize, @NotNull Map<String, ?> arguments) {
+        return database.queryAsync(handle -> fetch(handle, cursor, pageSize, arguments));
+    }
+
+    /**
+     * Fetches the page the given cursor points to.
+     *
+     * @param handle the handle to query with
+     * @param cursor a cursor of a previously fetched page, or null for the first page
+     * @param pageSize the maximum amount of rows per page
+     * @param arguments the arguments of the where condition
+     * @return the fetched page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public @NotNull KeysetPage<T> fetch(@NotNull Handle handle, @Nullable String cursor, int pageSize, @NotNull Map<String, ?> arguments) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("The page size must be positive");
+        }
+        Cursor decoded = cursor == null ? null : Cursor.decode(cursor);
+        boolean backward = decoded != null && decoded.direction == BACKWARD;
+        // seeking backwards reverses the order, the rows are flipped back afterwards
+        boolean descendingQuery = descending != backward;
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns).append(" FROM ").append(from);
+        List<String> conditions = new ArrayList<>(2);
+        if (where != null) {
+            conditions.add("(" + where + ")");
+        }
+        if (decoded != null) {
+            conditions.add("(" + sortColumn + ", " + idColumn + ")" + (descendingQuery ? " < " : " > ") + "(:_keysetSort, :_keysetId)");
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        String order = descendingQuery ? " DESC" : " ASC";
+        sql.append(" ORDER BY ").append(sortColumn).append(order).append(", ").append(idColumn).append(order).append(" LIMIT :_keysetLimit");
+
+        Query query = handle.createQuery(sql.toString()).bindMap(arguments).bind("_keysetLimit", pageSize + 1);
+        if (decoded != null) {
+            query.bind("_keysetSort", decoded.sort).bind("_keysetId", decoded.id);
+        }
+        List<T> rows = query.map(mapper).list();
+        boolean more = rows.size() > pageSize;
+        if (more) {
+            rows = rows.subList(0, pageSize);
+        }
+        if (backward) {
+            rows = new ArrayList<>(rows);
+            Collections.reverse(rows);
+        }
+        if (rows.isEmpty()) {
+            return new KeysetPage<>(List.of(), null, null);
+        }
+        boolean hasNext = backward || more;
+        boolean hasPrevious = backward ? more : decoded != null;
+        String next = hasNext ? cursor(FORWARD, rows.get(rows.size() - 1)) : null;
+        String previous = hasPrevious ? cursor(BACKWARD, rows.get(0)) : null;
+        return new KeysetPage<>(List.copyOf(rows), next, previous);
+    }
+
+    private String cursor(byte direction, T row) {
+        return new Cursor(direction, sortKey.apply(row), idKey.apply(row)).encode();
+    }
+
+    private record Cursor(byte direction, Object sort, Object id) {
+
+        String encode() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeByte(VERSION);
+                out.writeByte(direction);
+                writeKey(out, sort);
+                writeKey(out, id);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+        }
+
+        static Cursor decode(String cursor) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)))) {
+                if (in.readByte() != VERSION) {
+                    throw new IllegalArgumentException("Unsupported cursor version");
+                }
+                byte direction = in.readByte();
+                return new Cursor(direction, readKey(in), readKey(in));
+            } catch (IOException | IllegalArgumentException e) {
+                throw new IllegalArgumentException("Malformed cursor '" + cursor + "'", e);
+            }
+        }
+
+        private static void writeKey(DataOutputStream out, Object key) throws IOException {
+            if (key instanceof Integer || key instanceof Short || key instanceof Byte) {
+                out.writeByte('I');
+                out.writeInt(((Number) key).intValue());
+            } else if (key instanceof Long l) {
+                out.writeByte('L');
+                out.writeLong(l);
+            } else if (key instanceof Double || key instanceof Float) {
+                out.writeByte('D');
+                out.writeDouble(((Number) key).doubleValue());
+            } else if (key instanceof String s) {
+                out.writeByte('S');
+                out.writeUTF(s);
+            } else if (key instanceof UUID uuid) {
+                out.writeByte('U');
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+            } else if (key instanceof Timestamp timestamp) {
+                out.writeByte('P');
+                out.writeLong(timestamp.getTime());
+                out.writeInt(timestamp.getNanos());
+            } else if (key instanceof Instant instant) {
+                out.writeByte('T');
+                out.writeLong(instant.getEpochSecond());
+                out.writeInt(instant.getNano());
+            } else {
+                throw new IllegalArgumentException("Unsupported keyset key " + (key == null ? "null" : key.getClass().getName()));
+            }
+        }
+
+        private static Object readKey(DataInputStream in) throws IOException {
+            return switch (in.readByte()) {
+                case 'I' -> in.readInt();
+                case 'L' -> in.readLong();
+                case 'D' -> in.readDouble();
+                case 'S' -> in.readUTF();
+                case 'U' -> new UUID(in.readLong(), in.readLong());
+                case 'P' -> {
+                    Timestamp timestamp = new Timestamp(in.readLong());
+                    timestamp.setNanos(in.readInt());
+                    yield timestamp;
+                }
+                case 'T' -> Instant.ofEpochSecond(in.readLong(), in.readInt());
+                default -> throw new IOException("Unknown key type");
+            };
+        }
+    }
+}
@@ -6,7 +6,14 @@ import org.bukkit.plugin.Plugin;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -157,4 +164,66 @@ public class FileUtil {
         return file;
     }
 
+    /**
+     * Writes the given content into a temporary file next to the target and moves it to the target afterwards,
+     * so that a crash of the server while writing can't leave a truncated file behind. The content isn't synced to
+     * the disk, see {@link #writeAtomically(File, byte[], boolean)}.
+     *
+     * @param file the file to write
+     * @param content the content to write
+     * @throws IOException if the file can't be written
+     * @since 1.5.18
+     */
+    public static void writeAtomically(File file, String content) throws IOException {
+        writeAtomically(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @see #writeAtomically(File, String)
+     * @since 1.5.18
+     */
+    public static void writeAtomically(File file, byte[] content) throws IOException {
+        writeAtomically(file, content, false);
+    }
+
+    /**
+     * Writes the given content atomically like {@link #writeAtomically(File, String)}.
+     * <br>
+     * If sync is enabled, the content is forced to the disk before the file is replaced, so that the file also
+     * survives a power loss. This blocks until the disk has written the data, which is why it should only be
+     * enabled for writes that happen off the main thread.
+     *
+     * @param file the file to write
+     * @param content the content to write
+     * @param sync whether to force the content to the disk before replacing the file
+     * @throws IOException if the file can't be written
+     * @since 1.5.18
+     */
+    public static void writeAtomically(File file, byte[] content, boolean sync) throws IOException {
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        Path target = file.toPath().toAbsolutePath();
+        // a unique temporary file, as a synchronous and a queued save of the same file might run at the same time
+        Path temp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (sync) {
+                    channel.force(true);
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp); // only left behind if writing or moving failed
+        }
+    }
+
 }
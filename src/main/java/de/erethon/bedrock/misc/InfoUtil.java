@@ -4,6 +4,7 @@ import de.erethon.bedrock.chat.MessageUtil;
 import de.erethon.bedrock.command.CommandCache;
 import de.erethon.bedrock.command.ECommand;
 import de.erethon.bedrock.config.BedrockMessage;
+import de.erethon.bedrock.database.KeysetPage;
 import de.erethon.bedrock.plugin.EPlugin;
 import net.kyori.adventure.text.Component;
 import org.bukkit.ChatColor;
@@ -107,6 +108,28 @@ public class InfoUtil {
         }
     }
 
+    /**
+     * Sends a page fetched by a {@link de.erethon.bedrock.database.KeysetPaginator}. As keyset pages don't know the
+     * total amount of rows, the header shows the range of the page and whether more pages follow.
+     *
+     * @param page the fetched page
+     * @param pageNumber the number of the page, as tracked by the caller
+     * @param perPage the page size the page was fetched with
+     * @since 1.5.18
+     */
+    public static <T> void sendKeysetPage(@NotNull CommandSender sender, @NotNull KeysetPage<T> page, @NotNull String headerName,
+                                          @NotNull ComponentConverter<T> converter, int pageNumber, int perPage) {
+        int min = page.isEmpty() ? 0 : (pageNumber - 1) * perPage + 1;
+        int max = page.isEmpty() ? 0 : min + page.items().size() - 1;
+
+        MessageUtil.sendCenteredMessage(sender, "&4&l[&r &6" + headerName + " &4&l]");
+        MessageUtil.sendCenteredMessage(sender, "&4&l[&r &6" + min + "-" + max + (page.hasNext() ? "+" : "") + " &4|&6 " + pageNumber + " &4&l]");
+
+        for (T info : page.items()) {
+            MessageUtil.sendMessage(sender, MessageUtil.serialize(converter.convert(info)));
+        }
+    }
+
     public static void sendListedHelp(@NotNull CommandSender sender, @NotNull CommandCache commandCache) {
         sendListedHelp(sender, commandCache, BedrockMessage.INFO_COMMANDS.getMessage());
     }
@@ -0,0 +1,155 @@
+package de.erethon.bedrock.misc;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A growable list of primitive ints, which stores its values without boxing.
+ * <br>
+ * It can be used as {@link de.erethon.bedrock.config.storage.StorageData} field type and is stored as a list of numbers.
+ *
+ * @since 1.5.18
+ */
+public class IntList {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[] values;
+    private int size;
+
+    public IntList() {
+        this.values = EMPTY;
+    }
+
+    public IntList(int capacity) {
+        this.values = capacity == 0 ? EMPTY : new int[capacity];
+    }
+
+    public IntList(int @NotNull ... values) {
+        this.values = values.clone();
+        this.size = values.length;
+    }
+
+    public void add(int value) {
+        if (size == values.length) {
+            grow(size + 1);
+        }
+        values[size++] = value;
+    }
+
+    public void addAll(@NotNull IntList other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.values, 0, values, size, other.size);
+        size += other.size;
+    }
+
+    public int get(int index) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    /**
+     * @return the previous value at the index
+     */
+    public int set(int index, int value) {
+        checkIndex(index);
+        int previous = values[index];
+        values[index] = value;
+        return previous;
+    }
+
+    /**
+     * @return the removed value
+     */
+    public int removeAt(int index) {
+        checkIndex(index);
+        int removed = values[index];
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return removed;
+    }
+
+    /**
+     * @return true if the value was found and removed, false otherwise
+     */
+    public boolean removeValue(int value) {
+        int index = indexOf(value);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    public int indexOf(int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            grow(capacity);
+        }
+    }
+
+    public void forEach(@NotNull IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(values[i]);
+        }
+    }
+
+    public int @NotNull [] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    private void grow(int minCapacity) {
+        values = Arrays.copyOf(values, Math.max(minCapacity, Math.max(8, values.length + (values.length >> 1))));
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof IntList other && Arrays.equals(values, 0, size, other.values, 0, other.size);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + values[i];
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,209 @@
+package de.erethon.bedrock.misc;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An open addressing hash map from primitive ints to objects, which stores its keys without boxing.
+ * Null values are not supported.
+ * <br>
+ * It can be used as {@link de.erethon.bedrock.config.storage.StorageData} field type and is stored as a section,
+ * using the keys as section keys. The value type can be specified with {@link de.erethon.bedrock.config.storage.StorageData#valueTypes()}.
+ *
+ * @param <V> the value type
+ * @since 1.5.18
+ */
+public class IntObjectMap<V> {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    public IntObjectMap() {
+        this(8);
+    }
+
+    public IntObjectMap(int expectedSize) {
+        allocate(LongLongMap.tableSizeFor(expectedSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Nullable V get(int key) {
+        int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @return the previous value of the key or null if the key wasn't present
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable V put(int key, @NotNull V value) {
+        Objects.requireNonNull(value, "value");
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * @return the removed value or null if the key wasn't present
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable V remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V removed = (V) values[slot];
+        shiftKeys(slot);
+        size--;
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(@NotNull EntryConsumer<? super V> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                action.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    public void putAll(@NotNull IntObjectMap<? extends V> other) {
+        other.forEach(this::put);
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // backward shift deletion, see LongLongMap
+    private void shiftKeys(int slot) {
+        int mask = keys.length - 1;
+        int last = slot;
+        slot = (slot + 1) & mask;
+        while (values[slot] != null) {
+            int home = mix(keys[slot]) & mask;
+            if (last <= slot ? (home <= last || home > slot) : (home <= last && home > slot)) {
+                keys[last] = keys[slot];
+                values[last] = values[slot];
+                last = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        values[last] = null;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IntObjectMap<?> other) || other.size != size) {
+            return false;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null && !values[i].equals(other.get(keys[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                hash += keys[i] ^ values[i].hashCode();
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(key).append('=').append(value);
+        });
+        return builder.append('}').toString();
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(int key, V value);
+    }
+}
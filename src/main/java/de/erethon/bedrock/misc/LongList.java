@@ -0,0 +1,155 @@
+package de.erethon.bedrock.misc;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * A growable list of primitive longs, which stores its values without boxing.
+ * <br>
+ * It can be used as {@link de.erethon.bedrock.config.storage.StorageData} field type and is stored as a list of numbers.
+ *
+ * @since 1.5.18
+ */
+public class LongList {
+
+    private static final long[] EMPTY = new long[0];
+
+    private long[] values;
+    private int size;
+
+    public LongList() {
+        this.values = EMPTY;
+    }
+
+    public LongList(int capacity) {
+        this.values = capacity == 0 ? EMPTY : new long[capacity];
+    }
+
+    public LongList(long @NotNull ... values) {
+        this.values = values.clone();
+        this.size = values.length;
+    }
+
+    public void add(long value) {
+        if (size == values.length) {
+            grow(size + 1);
+        }
+        values[size++] = value;
+    }
+
+    public void addAll(@NotNull LongList other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.values, 0, values, size, other.size);
+        size += other.size;
+    }
+
+    public long get(int index) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    /**
+     * @return the previous value at the index
+     */
+    public long set(int index, long value) {
+        checkIndex(index);
+        long previous = values[index];
+        values[index] = value;
+        return previous;
+    }
+
+    /**
+     * @return the removed value
+     */
+    public long removeAt(int index) {
+        checkIndex(index);
+        long removed = values[index];
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return removed;
+    }
+
+    /**
+     * @return true if the value was found and removed, false otherwise
+     */
+    public boolean removeValue(long value) {
+        int index = indexOf(value);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    public int indexOf(long value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(long value) {
+        return indexOf(value) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            grow(capacity);
+        }
+    }
+
+    public void forEach(@NotNull LongConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(values[i]);
+        }
+    }
+
+    public long @NotNull [] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    private void grow(int minCapacity) {
+        values = Arrays.copyOf(values, Math.max(minCapacity, Math.max(8, values.length + (values.length >> 1))));
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof LongList other && Arrays.equals(values, 0, size, other.values, 0, other.size);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + Long.hashCode(values[i]);
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,231 @@
+package de.erethon.bedrock.misc;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash map from primitive longs to primitive longs, which stores its entries without boxing.
+ * <br>
+ * It can be used as {@link de.erethon.bedrock.config.storage.StorageData} field type and is stored as a section,
+ * using the keys as section keys.
+ *
+ * @since 1.5.18
+ */
+public class LongLongMap {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int size;
+
+    public LongLongMap() {
+        this(8);
+    }
+
+    public LongLongMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * @return the value of the key or the default value if the key isn't present
+     */
+    public long get(long key, long defaultValue) {
+        int slot = find(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @return the previous value of the key or the default value if the key wasn't present
+     */
+    public long put(long key, long value, long defaultValue) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                long previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+            rehash(keys.length << 1);
+        }
+        return defaultValue;
+    }
+
+    public void put(long key, long value) {
+        put(key, value, 0L);
+    }
+
+    /**
+     * Adds the amount to the value of the key, treating missing keys as 0.
+     *
+     * @return the new value
+     */
+    public long addTo(long key, long amount) {
+        long value = get(key, 0L) + amount;
+        put(key, value, 0L);
+        return value;
+    }
+
+    /**
+     * @return the removed value or the default value if the key wasn't present
+     */
+    public long remove(long key, long defaultValue) {
+        int slot = find(key);
+        if (slot < 0) {
+            return defaultValue;
+        }
+        long removed = values[slot];
+        shiftKeys(slot);
+        size--;
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    public void forEach(@NotNull EntryConsumer action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    public void putAll(@NotNull LongLongMap other) {
+        other.forEach(this::put);
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // backward shift deletion, which keeps the probe sequences intact without tombstones
+    private void shiftKeys(int slot) {
+        int mask = keys.length - 1;
+        int last = slot;
+        slot = (slot + 1) & mask;
+        while (used[slot]) {
+            int home = mix(keys[slot]) & mask;
+            if (last <= slot ? (home <= last || home > slot) : (home <= last && home > slot)) {
+                keys[last] = keys[slot];
+                values[last] = values[slot];
+                last = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[last] = false;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+    }
+
+    static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) Math.ceil(Math.max(1, expectedSize) / LOAD_FACTOR)) - 1) << 1;
+        return Math.max(2, capacity);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LongLongMap other) || other.size != size) {
+            return false;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                int slot = other.find(keys[i]);
+                if (slot < 0 || other.values[slot] != values[i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                hash += Long.hashCode(keys[i]) ^ Long.hashCode(values[i]);
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            builder.append(key).append('=').append(value);
+        });
+        return builder.append('}').toString();
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+}
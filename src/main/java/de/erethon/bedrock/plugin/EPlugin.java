@@ -6,6 +6,7 @@ import de.erethon.bedrock.command.ECommandCache;
 import de.erethon.bedrock.compatibility.CompatibilityHandler;
 import de.erethon.bedrock.config.BedrockConfig;
 import de.erethon.bedrock.config.BedrockMessage;
+import de.erethon.bedrock.config.ConfigSaveQueue;
 import de.erethon.bedrock.config.MessageHandler;
 import net.milkbowl.vault.economy.Economy;
 import net.milkbowl.vault.permission.Permission;
@@ -78,6 +79,7 @@ public class EPlugin extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        ConfigSaveQueue.getInstance().flushAll();
         instance = null;
     }
 
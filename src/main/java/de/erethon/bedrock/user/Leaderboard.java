@@ -0,0 +1,342 @@
+package de.erethon.bedrock.user;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * An in-memory ranking of users by a single score, ordered from the highest to the lowest score.
+ * Users with the same score are ordered by their uuid, so that every user has a distinct rank.
+ * <br>
+ * The ranking is stored in an order-statistic tree (a treap with subtree sizes), which allows updates, rank lookups
+ * and the lookup of the user at a rank in O(log n). Reading a page of n entries costs O(log n + n).
+ * All methods are thread safe.
+ *
+ * @since 1.5.18
+ */
+public class Leaderboard {
+
+    private static final Comparator<Node> ORDER = (a, b) -> compare(a.score, a.uuid, b);
+
+    private Map<UUID, Long> scores = new HashMap<>();
+    private final SplittableRandom random = new SplittableRandom();
+    private Node root;
+
+    /**
+     * Sets the score of the given user, adding it to the ranking if necessary.
+     *
+     * @param uuid the uuid of the user
+     * @param score the new score
+     */
+    public synchronized void update(@NotNull UUID uuid, long score) {
+        Long previous = scores.put(uuid, score);
+        if (previous != null) {
+            if (previous == score) {
+                return;
+            }
+            root = delete(root, previous, uuid);
+        }
+        root = insert(root, new Node(uuid, score, random.nextInt()));
+    }
+
+    /**
+     * Removes the given user from the ranking.
+     *
+     * @param uuid the uuid of the user
+     * @return true if the user was ranked, false otherwise
+     */
+    public synchronized boolean remove(@NotNull UUID uuid) {
+        Long previous = scores.remove(uuid);
+        if (previous == null) {
+            return false;
+        }
+        root = delete(root, previous, uuid);
+        return true;
+    }
+
+    /**
+     * Replaces the whole ranking with the given scores.
+     *
+     * @param scores the new scores mapped to their users
+     */
+    public void replaceAll(@NotNull Map<UUID, Long> scores) {
+        replaceAll(scores, Map.of());
+    }
+
+    /**
+     * Replaces the whole ranking with the given scores, while the overrides take precedence over them.
+     * <br>
+     * The new ranking is built in O(n log n) before the lock is acquired, so that concurrent reads and updates are only
+     * blocked while the trees are swapped and the overrides are applied. The overrides are read while holding the
+     * lock of this leaderboard, so updates that are synchronized on it are never lost.
+     *
+     * @param scores the new scores mapped to their users
+     * @param overrides the more recent scores mapped to their users
+     */
+    public void replaceAll(@NotNull Map<UUID, Long> scores, @NotNull Map<UUID, Long> overrides) {
+        Map<UUID, Long> replaced = new HashMap<>(scores);
+        Node replacedRoot = build(replaced);
+        synchronized (this) {
+            this.scores = replaced;
+            root = replacedRoot;
+            overrides.forEach(this::update);
+        }
+    }
+
+    /**
+     * Removes all users from the ranking.
+     */
+    public synchronized void clear() {
+        scores.clear();
+        root = null;
+    }
+
+    /**
+     * @param uuid the uuid of the user
+     * @return the score of the user, or null if the user isn't ranked
+     */
+    public synchronized @Nullable Long getScore(@NotNull UUID uuid) {
+        return scores.get(uuid);
+    }
+
+    /**
+     * Returns the rank of the given user, starting at 1 for the highest score.
+     *
+     * @param uuid the uuid of the user
+     * @return the rank of the user, or -1 if the user isn't ranked
+     */
+    public synchronized int getRank(@NotNull UUID uuid) {
+        Long score = scores.get(uuid);
+        if (score == null) {
+            return -1;
+        }
+        int before = 0;
+        Node node = root;
+        while (node != null) {
+            int compare = compare(score, uuid, node);
+            if (compare == 0) {
+                return before + size(node.left) + 1;
+            }
+            if (compare < 0) {
+                node = node.left;
+            } else {
+                before += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param rank the rank, starting at 1
+     * @return the entry at the given rank, or null if the rank is out of bounds
+     */
+    public synchronized @Nullable Entry getEntry(int rank) {
+        if (rank < 1 || rank > size(root)) {
+            return null;
+        }
+        int index = rank - 1;
+        Node node = root;
+        while (true) {
+            int left = size(node.left);
+            if (index < left) {
+                node = node.left;
+            } else if (index == left) {
+                return new Entry(node.uuid, node.score, rank);
+            } else {
+                index -= left + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Returns the entries from the given rank on.
+     *
+     * @param fromRank the first rank to include, starting at 1
+     * @param amount the maximum amount of entries
+     * @return the entries ordered by their rank
+     */
+    public synchronized @NotNull List<Entry> getRange(int fromRank, int amount) {
+        int from = Math.max(0, fromRank - 1);
+        int to = Math.min(size(root), from + Math.max(0, amount));
+        List<Entry> entries = new ArrayList<>(Math.max(0, to - from));
+        collect(root, 0, from, to, entries);
+        return entries;
+    }
+
+    /**
+     * @param page the page, starting at 1
+     * @param perPage the amount of entries per page
+     * @return the entries of the given page ordered by their rank
+     */
+    public @NotNull List<Entry> getPage(int page, int perPage) {
+        return getRange((Math.max(1, page) - 1) * perPage + 1, perPage);
+    }
+
+    /**
+     * @param amount the maximum amount of entries
+     * @return the highest ranked entries
+     */
+    public @NotNull List<Entry> getTop(int amount) {
+        return getRange(1, amount);
+    }
+
+    /**
+     * @return the amount of ranked users
+     */
+    public synchronized int size() {
+        return size(root);
+    }
+
+    /* tree */
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int compare(long score, UUID uuid, Node node) {
+        int compare = Long.compare(node.score, score); // descending
+        return compare != 0 ? compare : uuid.compareTo(node.uuid);
+    }
+
+    // builds the treap of the sorted nodes in O(n) by keeping the right spine on a stack
+    private static Node build(Map<UUID, Long> scores) {
+        SplittableRandom random = new SplittableRandom();
+        List<Node> nodes = new ArrayList<>(scores.size());
+        scores.forEach((uuid, score) -> nodes.add(new Node(uuid, score, random.nextInt())));
+        nodes.sort(ORDER);
+        Node[] spine = new Node[nodes.size()];
+        int depth = 0;
+        for (Node node : nodes) {
+            Node last = null;
+            while (depth > 0 && spine[depth - 1].priority < node.priority) {
+                last = spine[--depth].update();
+            }
+            node.left = last;
+            if (depth > 0) {
+                spine[depth - 1].right = node;
+            }
+            spine[depth++] = node;
+        }
+        while (depth > 1) {
+            spine[--depth].update();
+        }
+        return depth == 0 ? null : spine[0].update();
+    }
+
+    private void collect(Node node, int offset, int from, int to, List<Entry> entries) {
+        if (node == null || offset >= to || offset + node.size <= from) {
+            return;
+        }
+        int index = offset + size(node.left);
+        collect(node.left, offset, from, to, entries);
+        if (index >= from && index < to) {
+            entries.add(new Entry(node.uuid, node.score, index + 1));
+        }
+        collect(node.right, index + 1, from, to, entries);
+    }
+
+    private Node insert(Node node, Node inserted) {
+        if (node == null) {
+            return inserted;
+        }
+        if (inserted.priority > node.priority) {
+            Node[] split = split(node, inserted.score, inserted.uuid);
+            inserted.left = split[0];
+            inserted.right = split[1];
+            return inserted.update();
+        }
+        if (compare(inserted.score, inserted.uuid, node) < 0) {
+            node.left = insert(node.left, inserted);
+        } else {
+            node.right = insert(node.right, inserted);
+        }
+        return node.update();
+    }
+
+    private Node delete(Node node, long score, UUID uuid) {
+        if (node == null) {
+            return null;
+        }
+        int compare = compare(score, uuid, node);
+        if (compare == 0) {
+            return merge(node.left, node.right);
+        }
+        if (compare < 0) {
+            node.left = delete(node.left, score, uuid);
+        } else {
+            node.right = delete(node.right, score, uuid);
+        }
+        return node.update();
+    }
+
+    // splits into the nodes ranked before the key and the nodes ranked after it
+    private Node[] split(Node node, long score, UUID uuid) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (compare(score, uuid, node) < 0) {
+            Node[] split = split(node.left, score, uuid);
+            node.left = split[1];
+            split[1] = node.update();
+            return split;
+        }
+        Node[] split = split(node.right, score, uuid);
+        node.right = split[0];
+        split[0] = node.update();
+        return split;
+    }
+
+    private Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return left.update();
+        }
+        right.left = merge(left, right.left);
+        return right.update();
+    }
+
+    private static final class Node {
+
+        private final UUID uuid;
+        private final long score;
+        private final int priority;
+        private Node left, right;
+        private int size = 1;
+
+        private Node(UUID uuid, long score, int priority) {
+            this.uuid = uuid;
+            this.score = score;
+            this.priority = priority;
+        }
+
+        private Node update() {
+            size = 1 + Leaderboard.size(left) + Leaderboard.size(right);
+            return this;
+        }
+    }
+
+    /**
+     * A ranked user.
+     *
+     * @param uuid the uuid of the user
+     * @param score the score of the user
+     * @param rank the rank of the user, starting at 1
+     */
+    public record Entry(@NotNull UUID uuid, long score, int rank) {
+    }
+}
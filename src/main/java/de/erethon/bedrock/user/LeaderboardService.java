@@ -0,0 +1,168 @@
+package de.erethon.bedrock.user;
+
+import de.erethon.bedrock.chat.MessageUtil;
+import de.erethon.bedrock.database.EDatabaseManager;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a materialized {@link Leaderboard} per stat, so that rank lookups and top lists don't have to sort users
+ * or query the database on demand.
+ * <br>
+ * Every stat is backed by a query returning the uuid in its first and the score in its second column, e.g.
+ * {@code SELECT uuid, kills FROM player_stats}. The leaderboards are filled from the database once registered and
+ * whenever they get refreshed, e.g. by {@link #startRefreshTask(Plugin, long)}. In between, online users feed their
+ * current scores through {@link #update(String, UUID, long)}. These scores take precedence over the database values
+ * until the user is {@link #release(UUID) released}, which should happen after the user was saved.
+ *
+ * @since 1.5.18
+ */
+public class LeaderboardService {
+
+    private final EDatabaseManager database;
+    private final Map<String, Stat> stats = new ConcurrentHashMap<>();
+
+    public LeaderboardService(@NotNull EDatabaseManager database) {
+        this.database = database;
+    }
+
+    /**
+     * Registers a stat and starts loading its leaderboard from the database.
+     *
+     * @param stat the name of the stat
+     * @param query the query selecting the uuid and the score of every user
+     * @return the leaderboard of the stat
+     */
+    public @NotNull Leaderboard register(@NotNull String stat, @NotNull String query) {
+        Stat registered = new Stat(query);
+        Stat previous = stats.putIfAbsent(stat, registered);
+        if (previous != null) {
+            throw new IllegalArgumentException("Stat '" + stat + "' is already registered");
+        }
+        refresh(stat);
+        return registered.leaderboard;
+    }
+
+    /**
+     * @param stat the name of the stat
+     * @return the leaderboard of the stat, or null if the stat isn't registered
+     */
+    public @Nullable Leaderboard getLeaderboard(@NotNull String stat) {
+        Stat registered = stats.get(stat);
+        return registered == null ? null : registered.leaderboard;
+    }
+
+    /**
+     * @return the names of all registered stats
+     */
+    public @NotNull Set<String> getStats() {
+        return Set.copyOf(stats.keySet());
+    }
+
+    /**
+     * Updates the score of an online user.
+     *
+     * @param stat the name of the stat
+     * @param uuid the uuid of the user
+     * @param score the current score of the user
+     */
+    public void update(@NotNull String stat, @NotNull UUID uuid, long score) {
+        Stat registered = stats.get(stat);
+        if (registered == null) {
+            throw new IllegalArgumentException("Unknown stat '" + stat + "'");
+        }
+        synchronized (registered.leaderboard) { // a concurrent refresh must not replace the score in between
+            registered.live.put(uuid, score);
+            registered.leaderboard.update(uuid, score);
+        }
+    }
+
+    /**
+     * Stops preferring the scores passed to {@link #update(String, UUID, long)} for the given user over the database
+     * values. The user keeps its current scores until the next refresh.
+     *
+     * @param uuid the uuid of the user
+     */
+    public void release(@NotNull UUID uuid) {
+        for (Stat stat : stats.values()) {
+            stat.live.remove(uuid);
+        }
+    }
+
+    /**
+     * Reloads the leaderboard of the given stat from the database.
+     *
+     * @param stat the name of the stat
+     * @return a future completing once the leaderboard was replaced
+     */
+    public @NotNull CompletableFuture<Void> refresh(@NotNull String stat) {
+        Stat registered = stats.get(stat);
+        if (registered == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown stat '" + stat + "'"));
+        }
+        return database.queryAsync(handle -> handle.createQuery(registered.query)
+                .reduceRows(new HashMap<UUID, Long>(), (scores, row) -> {
+                    Object uuid = row.getColumn(1, Object.class);
+                    Long score = row.getColumn(2, Long.class);
+                    if (uuid != null && score != null) {
+                        scores.put(uuid instanceof UUID id ? id : UUID.fromString(uuid.toString()), score);
+                    }
+                    return scores;
+                }))
+                // the live scores are applied while holding the leaderboard's lock, which is also held by update(),
+                // so no live score can get lost in between
+                .thenAccept(scores -> registered.leaderboard.replaceAll(scores, registered.live))
+                .exceptionally(e -> {
+                    MessageUtil.log("&4Could not refresh the leaderboard &6" + stat + "&4...");
+                    e.printStackTrace();
+                    return null;
+                });
+    }
+
+    /**
+     * Reloads all leaderboards from the database.
+     *
+     * @return a future completing once all leaderboards were replaced
+     */
+    public @NotNull CompletableFuture<Void> refreshAll() {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(stats.size());
+        for (String stat : stats.keySet()) {
+            futures.add(refresh(stat));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Starts an asynchronous task that calls {@link #refreshAll()} periodically.
+     *
+     * @param plugin the plugin to run the task with
+     * @param periodTicks the period in ticks
+     * @return the started task
+     */
+    public @NotNull BukkitTask startRefreshTask(@NotNull Plugin plugin, long periodTicks) {
+        return Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::refreshAll, periodTicks, periodTicks);
+    }
+
+    private static final class Stat {
+
+        private final String query;
+        private final Leaderboard leaderboard = new Leaderboard();
+        private final Map<UUID, Long> live = new ConcurrentHashMap<>();
+
+        private Stat(String query) {
+            this.query = query;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package de.erethon.bedrock.user;
 
+import de.erethon.bedrock.chat.MessageUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
@@ -13,16 +14,48 @@ import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * A simple class to load and unload user classes.
  * It registers itself as an {@link Listener} to load and unload users through join and quit events.
+ * <br>
+ * Concurrent loads of the same user are coalesced, so that {@link #getNewInstance(OfflinePlayer)}
+ * runs only once per uuid and every caller receives the same instance.
  *
  * @param <USER> The user object to load
  * @since 1.0.0
@@ -30,20 +63,37 @@ import java.util.function.Consumer;
  */
 public abstract class UserCache<USER extends LoadableUser> implements Listener {
 
+    private static final int PREFETCH_CHUNK_SIZE = 64;
+
     private final Plugin plugin;
     private final Map<String, UUID> nameToId;
     private final Map<UUID, USER> idToUser;
     private final Map<UUID, BukkitTask> idToTask;
+    private final Map<UUID, CompletableFuture<USER>> pendingLoads;
+    private final Executor asyncExecutor;
+    private final Collection<USER> cachedUsersView;
+    private final AtomicInteger membershipVersion = new AtomicInteger();
+    private volatile UserSnapshot<USER> snapshot;
+    private final UserCacheStatistics statistics = new UserCacheStatistics();
     private long unloadAfter = 60*20; // seconds
+    private long prefetchUnloadAfter = 10*60*20;
+    private UserNameIndex nameIndex;
+    private UserJournal journal;
+    private File warmRestartFile;
+    private int warmRestartLimit;
+    private final Map<UUID, AtomicInteger> accessCounts = new ConcurrentHashMap<>();
 
     /**
      * @param plugin the plugin to register the listener with
      */
     public UserCache(@NotNull JavaPlugin plugin) {
         this.plugin = plugin;
-        this.nameToId = new HashMap<>();
-        this.idToUser = new HashMap<>();
-        this.idToTask = new HashMap<>();
+        this.nameToId = new ConcurrentHashMap<>();
+        this.idToUser = new ConcurrentHashMap<>();
+        this.idToTask = new ConcurrentHashMap<>();
+        this.pendingLoads = new ConcurrentHashMap<>();
+        this.asyncExecutor = task -> Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+        this.cachedUsersView = Collections.unmodifiableCollection(idToUser.values());
         Bukkit.getPluginManager().registerEvents(this, plugin);
     }
 
@@ -63,16 +113,24 @@ public abstract class UserCache<USER extends LoadableUser> implements Listener {
      * @return the loaded user
      */
     public @NotNull USER load(@NotNull Player player) {
-        USER user = getNewInstance(player);
+        return load(player, false);
+    }
+
+    private @NotNull USER load(@NotNull Player player, boolean reuseCached) {
+        UUID uuid = player.getUniqueId();
+        USER user = loadOnce(uuid, reuseCached, () -> getNewInstance(player));
         if (user == null) {
             throw new NullPointerException("The user instance for " + player.getName() + " is null -> getNewInstance(OfflinePlayer) has to return a NotNull instance for online players");
         }
-        UUID uuid = player.getUniqueId();
-        String name = player.getName();
+        updateName(uuid, player.getName());
+        return user;
+    }
 
+    private void updateName(UUID uuid, String name) {
         nameToId.put(name, uuid);
-        idToUser.put(uuid, user);
-        return user;
+        if (nameIndex != null) {
+            nameIndex.update(uuid, name);
+        }
     }
 
     /**
@@ -83,31 +141,196 @@ public abstract class UserCache<USER extends LoadableUser> implements Listener {
      * @since 1.2.4
      */
     public @Nullable USER load(@NotNull OfflinePlayer offlinePlayer) {
+        return load(offlinePlayer, false);
+    }
+
+    private @Nullable USER load(@NotNull OfflinePlayer offlinePlayer, boolean reuseCached) {
         Player player = offlinePlayer.getPlayer();
         if (player != null) {
-            return load(player);
+            return load(player, reuseCached);
         }
-        USER user = getNewInstance(offlinePlayer);
+        UUID uuid = offlinePlayer.getUniqueId();
+        USER user = loadOnce(uuid, reuseCached, () -> {
+            USER loaded = getNewInstance(offlinePlayer);
+            if (loaded != null) {
+                scheduleUnloadTask(offlinePlayer);
+            }
+            return loaded;
+        });
         if (user == null) {
             return null;
         }
-        UUID uuid = offlinePlayer.getUniqueId();
         String name = offlinePlayer.getName();
 
         if (name != null) {
             nameToId.put(name, uuid);
         }
-        idToUser.put(uuid, user);
-        scheduleUnloadTask(offlinePlayer);
         return user;
     }
 
+    /**
+     * Runs the given loader and caches its result, unless a load for the same uuid is already in progress.
+     * In that case the running load is awaited and its result returned instead, so that concurrent
+     * callers never create two instances for the same user.
+     *
+     * @param uuid the uuid of the user to load
+     * @param reuseCached if an already cached user should be returned instead of loading a new one
+     * @param loader the loader creating the user instance
+     * @return the loaded user, or null
+     */
+    private @Nullable USER loadOnce(@NotNull UUID uuid, boolean reuseCached, @NotNull Supplier<USER> loader) {
+        CompletableFuture<USER> future = new CompletableFuture<>();
+        CompletableFuture<USER> pending = pendingLoads.putIfAbsent(uuid, future);
+        if (pending != null) {
+            if (!(pending instanceof PrefetchLoad<USER> prefetch) || !prefetch.claim()) {
+                return pending.join();
+            }
+            future = prefetch; // the prefetch didn't start this user yet, so it is loaded right away instead
+        }
+        try {
+            USER user = reuseCached ? idToUser.get(uuid) : null;
+            if (user == null) {
+                long start = System.nanoTime();
+                user = loader.get();
+                statistics.getLoadTimes().record(System.nanoTime() - start);
+                if (user != null) {
+                    cache(uuid, user);
+                }
+            }
+            future.complete(user);
+            return user;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            pendingLoads.remove(uuid, future);
+        }
+    }
+
+    /**
+     * Loads every user of the given uuids that isn't cached yet and returns all matching users.
+     * <br>
+     * Missing users are loaded asynchronously with one call of {@link #getNewInstances(Collection)} per 64 users.
+     * Every chunk is inserted into the cache as soon as it was loaded. If one of the users is loaded on another thread
+     * before its chunk started, e.g. because the player joined, that thread loads the user instead of waiting for the
+     * batch. Users that are already being loaded by another call are awaited instead of being loaded twice.
+     * <br>
+     * Users whose player is offline are unloaded after {@link #getPrefetchUnloadAfter()}.
+     *
+     * @param uuids the uuids of the users to load
+     * @return a future completing with every cached or loaded user of the given uuids
+     * @since 1.5.18
+     */
+    public @NotNull CompletableFuture<Map<UUID, USER>> prefetch(@NotNull Collection<UUID> uuids) {
+        Map<UUID, PrefetchLoad<USER>> batch = new LinkedHashMap<>();
+        List<CompletableFuture<USER>> awaited = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            if (idToUser.containsKey(uuid) || batch.containsKey(uuid)) {
+                continue;
+            }
+            PrefetchLoad<USER> future = new PrefetchLoad<>();
+            CompletableFuture<USER> pending = pendingLoads.putIfAbsent(uuid, future);
+            if (pending != null) {
+                awaited.add(pending);
+                continue;
+            }
+            if (idToUser.containsKey(uuid)) { // loaded while acquiring the pending load
+                pendingLoads.remove(uuid, future);
+                future.complete(idToUser.get(uuid));
+                continue;
+            }
+            batch.put(uuid, future);
+        }
+        CompletableFuture<Void> loading = batch.isEmpty()
+                ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.runAsync(() -> loadBatch(batch), asyncExecutor);
+        awaited.addAll(batch.values()); // users claimed by another thread are completed by it
+        return loading
+                .thenCompose(v -> CompletableFuture.allOf(awaited.stream().map(f -> f.exceptionally(e -> null)).toArray(CompletableFuture[]::new)))
+                .thenApply(v -> {
+                    Map<UUID, USER> users = new HashMap<>(uuids.size());
+                    for (UUID uuid : uuids) {
+                        USER user = idToUser.get(uuid);
+                        if (user != null) {
+                            users.put(uuid, user);
+                        }
+                    }
+                    return users;
+                });
+    }
+
+    private void loadBatch(Map<UUID, PrefetchLoad<USER>> batch) {
+        List<UUID> uuids = new ArrayList<>(batch.keySet());
+        for (int i = 0; i < uuids.size(); i += PREFETCH_CHUNK_SIZE) {
+            int end = Math.min(uuids.size(), i + PREFETCH_CHUNK_SIZE);
+            Map<UUID, PrefetchLoad<USER>> chunk = new LinkedHashMap<>();
+            for (UUID uuid : uuids.subList(i, end)) {
+                PrefetchLoad<USER> future = batch.get(uuid);
+                if (future.claim()) {
+                    chunk.put(uuid, future);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                loadChunk(chunk, batch, uuids.subList(end, uuids.size()));
+            }
+        }
+    }
+
+    private void loadChunk(Map<UUID, PrefetchLoad<USER>> chunk, Map<UUID, PrefetchLoad<USER>> batch, List<UUID> remaining) {
+        try {
+            Map<UUID, OfflinePlayer> players = new LinkedHashMap<>(chunk.size());
+            for (UUID uuid : chunk.keySet()) {
+                players.put(uuid, Bukkit.getOfflinePlayer(uuid));
+            }
+            long start = System.nanoTime();
+            Map<UUID, USER> loaded = getNewInstances(players.values());
+            statistics.getBatchLoadTimes().record(System.nanoTime() - start);
+            for (Map.Entry<UUID, USER> entry : loaded.entrySet()) {
+                OfflinePlayer player = players.get(entry.getKey());
+                if (player == null || entry.getValue() == null) {
+                    continue;
+                }
+                cache(entry.getKey(), entry.getValue());
+                String name = player.getName();
+                if (name != null) {
+                    nameToId.put(name, entry.getKey());
+                }
+                if (!player.isOnline() && prefetchUnloadAfter >= 0) {
+                    scheduleUnloadTask(player, prefetchUnloadAfter);
+                }
+            }
+            chunk.forEach((uuid, future) -> future.complete(loaded.get(uuid)));
+        } catch (RuntimeException | Error e) {
+            chunk.values().forEach(future -> future.completeExceptionally(e));
+            for (UUID uuid : remaining) { // the batch is aborted, but users claimed by other threads are still loaded
+                PrefetchLoad<USER> future = batch.get(uuid);
+                if (future.claim()) {
+                    future.completeExceptionally(e);
+                    pendingLoads.remove(uuid, future);
+                }
+            }
+            throw e;
+        } finally {
+            chunk.forEach(pendingLoads::remove);
+        }
+    }
+
     /**
      * Unloads every player that is online.
      */
     public void unloadAll() {
+        if (warmRestartFile != null) {
+            saveWarmRestartSnapshot();
+        }
+        unloadAll(UserCacheStatistics.UnloadReason.UNLOAD_ALL);
+    }
+
+    private void unloadAll(UserCacheStatistics.UnloadReason reason) {
         for (Player player : Bukkit.getOnlinePlayers()) {
-            unload(player);
+            unload(player, reason);
+        }
+        if (nameIndex != null) {
+            nameIndex.save();
         }
     }
 
@@ -118,12 +341,29 @@ public abstract class UserCache<USER extends LoadableUser> implements Listener {
      * @return the unloaded user, or null
      */
     public @Nullable USER unload(@NotNull OfflinePlayer player) {
-        USER user = idToUser.get(player.getUniqueId());
+        return unload(player, UserCacheStatistics.UnloadReason.MANUAL);
+    }
+
+    private @Nullable USER unload(@NotNull OfflinePlayer player, UserCacheStatistics.UnloadReason reason) {
+        long start = System.nanoTime();
+        UUID uuid = player.getUniqueId();
+        USER user = idToUser.get(uuid);
+        if (user != null) {
+            saveUser(user);
+        }
+        String name = player.getName();
+        if (name != null) {
+            nameToId.remove(name);
+        }
+        BukkitTask task = idToTask.remove(uuid);
+        if (task != null) {
+            task.cancel();
+        }
+        uncache(uuid);
         if (user != null) {
-            user.saveUser();
+            statistics.recordUnload(reason);
+            statistics.getUnloadTimes().record(System.nanoTime() - start);
         }
-        nameToId.remove(player.getName());
-        idToUser.remove(player.getUniqueId());
         return user;
     }
 
@@ -131,7 +371,7 @@ public abstract class UserCache<USER extends LoadableUser> implements Listener {
      * Clears all loaded users before loading every online player back again.
      */
     public void reloadAll() {
-        unloadAll();
+        unloadAll(UserCacheStatistics.UnloadReason.RELOAD);
         loadAll();
     }
 
@@ -140,21 +380,224 @@ public abstract class UserCache<USER extends LoadableUser> implements Listener {
      */
     public void saveAll() {
         for (USER user : idToUser.values()) {
-            user.saveUser();
+            saveUser(user);
+        }
+        if (nameIndex != null) {
+            nameIndex.save();
+        }
+    }
+
+    /**
+     * Calls the {@link LoadableUser#saveUser()} method for every user in the cache concurrently.
+     * <br>
+     * Every save runs on its own virtual thread, while at most {@code parallelism} saves run at the same time.
+     * This method blocks until all saves have completed or the timeout is reached. Saves that are still running
+     * afterwards aren't interrupted, but reported as timed out. Failed and timed out users are logged.
+     * <br>
+     * <b>Note:</b> {@link LoadableUser#saveUser()} has to be thread-safe to use this method.
+     *
+     * @param parallelism the maximum amount of concurrent saves
+     * @param timeout the maximum duration to wait for all saves
+     * @return a report containing the failed and timed out users
+     * @since 1.5.18
+     */
+    public @NotNull UserSaveReport saveAll(int parallelism, @NotNull Duration timeout) {
+        UserSaveReport report = saveParallel(new HashMap<>(idToUser), parallelism, timeout, false);
+        if (nameIndex != null) {
+            nameIndex.save();
+        }
+        return report;
+    }
+
+    /**
+     * Saves and unloads every cached user, including offline users, with {@link #saveAll(int, Duration)}.
+     * This is meant to be called when the plugin gets disabled, to save all users within the server's shutdown time.
+     * <br>
+     * Saves that didn't start before the timeout are taken over by the calling thread and run synchronously, as the
+     * save threads don't keep the server alive. Saves that are still running are awaited for up to the timeout once
+     * more, but never started a second time, and are reported as timed out if they still didn't complete.
+     * <br>
+     * <b>Note:</b> {@link LoadableUser#saveUser()} has to be thread-safe to use this method.
+     *
+     * @param parallelism the maximum amount of concurrent saves
+     * @param timeout the maximum duration to wait for all saves
+     * @return a report containing the failed and timed out users
+     * @since 1.5.18
+     */
+    public @NotNull UserSaveReport shutdown(int parallelism, @NotNull Duration timeout) {
+        if (warmRestartFile != null) {
+            saveWarmRestartSnapshot();
+        }
+        Map<UUID, USER> users = new HashMap<>(idToUser);
+        UserSaveReport report = saveParallel(users, parallelism, timeout, true);
+        for (Map.Entry<UUID, USER> entry : users.entrySet()) {
+            BukkitTask task = idToTask.remove(entry.getKey());
+            if (task != null) {
+                task.cancel();
+            }
+            uncache(entry.getKey());
+            statistics.recordUnload(UserCacheStatistics.UnloadReason.UNLOAD_ALL);
+        }
+        nameToId.clear();
+        if (nameIndex != null) {
+            nameIndex.save();
+        }
+        return report;
+    }
+
+    private UserSaveReport saveParallel(Map<UUID, USER> users, int parallelism, Duration timeout, boolean saveRemaining) {
+        long start = System.nanoTime();
+        ParallelSave save = new ParallelSave(users);
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (UUID uuid : users.keySet()) {
+                executor.execute(() -> {
+                    try {
+                        permits.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    try {
+                        save.trySave(uuid); // does nothing if the caller already took over the save
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            if (!save.await(users.keySet(), timeout)) {
+                MessageUtil.log(plugin, "&4Saving users reached the timeout of &6" + timeout.toMillis() + "ms&4...");
+                if (saveRemaining) {
+                    saveRemaining(save, timeout);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+        Set<UUID> timedOut = new HashSet<>();
+        for (UUID uuid : users.keySet()) {
+            if (!save.saved.contains(uuid) && !save.failed.containsKey(uuid)) {
+                timedOut.add(uuid);
+            }
+        }
+        UserSaveReport report = new UserSaveReport(save.saved.size(), Map.copyOf(save.failed), Set.copyOf(timedOut), Duration.ofNanos(System.nanoTime() - start));
+        for (Map.Entry<UUID, Throwable> entry : report.failed().entrySet()) {
+            MessageUtil.log(plugin, "&4Could not save user &6" + entry.getKey() + "&4:");
+            entry.getValue().printStackTrace();
+        }
+        for (UUID uuid : report.timedOut()) {
+            MessageUtil.log(plugin, "&4Saving user &6" + uuid + " &4timed out");
+        }
+        return report;
+    }
+
+    /**
+     * Runs the saves that no save thread started before the timeout on the calling thread and waits for the saves
+     * that are still running. These aren't repeated, as a user must never be saved twice at the same time.
+     */
+    private void saveRemaining(ParallelSave save, Duration timeout) throws InterruptedException {
+        List<UUID> queued = save.getUsers(SaveState.QUEUED);
+        if (!queued.isEmpty()) {
+            MessageUtil.log(plugin, "&6Saving &e" + queued.size() + " &6remaining users synchronously...");
+            for (UUID uuid : queued) {
+                save.trySave(uuid);
+            }
+        }
+        List<UUID> running = save.getUsers(SaveState.RUNNING);
+        if (!running.isEmpty()) {
+            MessageUtil.log(plugin, "&6Waiting for &e" + running.size() + " &6running saves...");
+            save.await(running, timeout);
+        }
+    }
+
+    private enum SaveState {
+        QUEUED,
+        RUNNING,
+        DONE
+    }
+
+    /**
+     * The progress of a parallel save. A save is claimed by switching the state of its user from
+     * {@link SaveState#QUEUED} to {@link SaveState#RUNNING}, so that it runs exactly once.
+     */
+    private final class ParallelSave {
+
+        private final Map<UUID, USER> users;
+        private final Map<UUID, SaveState> states = new ConcurrentHashMap<>();
+        private final Map<UUID, CompletableFuture<Void>> completions = new HashMap<>();
+        private final Set<UUID> saved = ConcurrentHashMap.newKeySet();
+        private final Map<UUID, Throwable> failed = new ConcurrentHashMap<>();
+
+        private ParallelSave(Map<UUID, USER> users) {
+            this.users = users;
+            for (UUID uuid : users.keySet()) {
+                states.put(uuid, SaveState.QUEUED);
+                completions.put(uuid, new CompletableFuture<>());
+            }
+        }
+
+        private void trySave(UUID uuid) {
+            if (!states.replace(uuid, SaveState.QUEUED, SaveState.RUNNING)) {
+                return;
+            }
+            try {
+                saveUser(users.get(uuid));
+                saved.add(uuid);
+            } catch (Throwable t) {
+                failed.put(uuid, t);
+            } finally {
+                states.put(uuid, SaveState.DONE);
+                completions.get(uuid).complete(null);
+            }
+        }
+
+        private boolean await(Collection<UUID> uuids, Duration timeout) throws InterruptedException {
+            CompletableFuture<?>[] futures = new CompletableFuture[uuids.size()];
+            int i = 0;
+            for (UUID uuid : uuids) {
+                futures[i++] = completions.get(uuid);
+            }
+            try {
+                CompletableFuture.allOf(futures).get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+                return true;
+            } catch (TimeoutException e) {
+                return false;
+            } catch (ExecutionException e) {
+                return true; // never thrown, as the futures always complete normally
+            }
+        }
+
+        private List<UUID> getUsers(SaveState state) {
+            List<UUID> matching = new ArrayList<>();
+            states.forEach((uuid, current) -> {
+                if (current == state) {
+                    matching.add(uuid);
+                }
+            });
+            return matching;
         }
     }
 
     /**
      * Returns the cached user matching the name if found.
      * If no user is found, it will try to create a new one.
+     * <br>
+     * If a {@link UserNameIndex} is enabled, names are resolved case-insensitive through the index
+     * before falling back to {@link Bukkit#getOfflinePlayer(String)}.
      *
      * @param name the name to get the user for
      * @return the matching user, or null
      * @see UserCache#getNewInstance(OfflinePlayer)
      */
     public @Nullable USER getByName(@NotNull String name) {
-        UUID uuid = nameToId.get(name);
-        return getByPlayer(uuid != null ? Bukkit.getOfflinePlayer(uuid) : Bukkit.getOfflinePlayer(name));
+        UUID uuid = getUniqueId(name);
+        USER user = uuid != null ? idToUser.get(uuid) : null;
+        recordLookup(UserCacheStatistics.Lookup.NAME, uuid, user != null);
+        return user != null ? user : load(uuid != null ? Bukkit.getOfflinePlayer(uuid) : Bukkit.getOfflinePlayer(name), true);
     }
 
     /**
@@ -166,8 +609,50 @@ public abstract class UserCache<USER extends LoadableUser> implements Listener {
      * @see UserCache#getNewInstance(OfflinePlayer)
      */
     public @Nullable USER getByNameIfCached(@NotNull String name) {
+        UUID uuid = getUniqueId(name);
+        USER user = uuid != null ? idToUser.get(uuid) : null;
+        recordLookup(UserCacheStatistics.Lookup.NAME, uuid, user != null);
+        return user;
+    }
+
+    /**
+     * Returns the uuid of the given name, if it is cached or indexed.
+     *
+     * @param name the name to get the uuid for
+     * @return the uuid of the given name, or null
+     * @since 1.5.18
+     */
+    public @Nullable UUID getUniqueId(@NotNull String name) {
         UUID uuid = nameToId.get(name);
-        return uuid == null ? null : getByUniqueIdIfCached(uuid);
+        if (uuid == null && nameIndex != null) {
+            uuid = nameIndex.getUniqueId(name);
+        }
+        return uuid;
+    }
+
+    /**
+     * Returns the known names starting with the given prefix, ignoring its case.
+     * Without an enabled {@link UserNameIndex} only the names of cached users are considered.
+     *
+     * @param prefix the prefix to search for
+     * @param limit the maximum amount of names to return
+     * @return a List of names starting with the given prefix
+     * @since 1.5.18
+     */
+    public @NotNull List<String> completeName(@NotNull String prefix, int limit) {
+        if (nameIndex != null) {
+            return nameIndex.complete(prefix, limit);
+        }
+        List<String> names = new ArrayList<>();
+        for (String name : nameToId.keySet()) {
+            if (names.size() >= limit) {
+                break;
+            }
+            if (name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                names.add(name);
+            }
+        }
+        return names;
     }
 
     /**
@@ -180,7 +665,8 @@ public abstract class UserCache<USER extends LoadableUser> implements Listener {
      */
     public @Nullable USER getByUniqueId(@NotNull UUID uuid) {
         USER user = idToUser.get(uuid);
-        return user != null ? user : load(Bukkit.getOfflinePlayer(uuid));
+        recordLookup(UserCacheStatistics.Lookup.UNIQUE_ID, uuid, user != null);
+        return user != null ? user : load(Bukkit.getOfflinePlayer(uuid), true);
     }
 
     /**
@@ -192,7 +678,9 @@ public abstract class UserCache<USER extends LoadableUser> implements Listener {
      * @see UserCache#getNewInstance(OfflinePlayer)
      */
     public @Nullable USER getByUniqueIdIfCached(@NotNull UUID uuid) {
-        return idToUser.get(uuid);
+        USER user = idToUser.get(uuid);
+        recordLookup(UserCacheStatistics.Lookup.UNIQUE_ID, uuid, user != null);
+        return user;
     }
 
     /**
@@ -206,7 +694,8 @@ public abstract class UserCache<USER extends LoadableUser> implements Listener {
      */
     public @NotNull USER getByPlayer(@NotNull Player player) {
         USER user = idToUser.get(player.getUniqueId());
-        return user != null ? user : load(player);
+        recordLookup(UserCacheStatistics.Lookup.PLAYER, player.getUniqueId(), user != null);
+        return user != null ? user : load(player, true);
     }
 
     /**
@@ -221,7 +710,8 @@ public abstract class UserCache<USER extends LoadableUser> implements Listener {
      */
     public @Nullable USER getByPlayer(@NotNull OfflinePlayer player) {
         USER user = idToUser.get(player.getUniqueId());
-        return user != null ? user : load(player);
+        recordLookup(UserCacheStatistics.Lookup.PLAYER, player.getUniqueId(), user != null);
+        return user != null ? user : load(player, true);
     }
 
     /**
@@ -235,11 +725,16 @@ public abstract class UserCache<USER extends LoadableUser> implements Listener {
      * @see UserCache#getNewInstance(OfflinePlayer)
      */
     public @Nullable USER getByPlayerIfCached(@NotNull OfflinePlayer player) {
-        return idToUser.get(player.getUniqueId());
+        USER user = idToUser.get(player.getUniqueId());
+        recordLookup(UserCacheStatistics.Lookup.PLAYER, player.getUniqueId(), user != null);
+        return user;
     }
 
     /**
      * Returns a {@link Set} of all loaded users.
+     * <br>
+     * The users are copied into a new Set on every call.
+     * Use {@link #getCachedUsersView()} or {@link #getCachedUsersSnapshot()} for frequent iterations.
      *
      * @return a Set of all loaded users
      */
@@ -247,6 +742,37 @@ public abstract class UserCache<USER extends LoadableUser> implements Listener {
         return new HashSet<>(idToUser.values());
     }
 
+    /**
+     * Returns an unmodifiable live view of all loaded users.
+     * The view reflects later changes of the cache and can be iterated from any thread,
+     * but the iteration itself allocates an iterator.
+     *
+     * @return an unmodifiable live view of all loaded users
+     * @since 1.5.18
+     */
+    public @NotNull Collection<USER> getCachedUsersView() {
+        return cachedUsersView;
+    }
+
+    /**
+     * Returns an immutable, indexed snapshot of all loaded users.
+     * <br>
+     * The snapshot is only rebuilt if users were loaded or unloaded since the last call,
+     * so iterating it by index, e.g. every tick, doesn't allocate anything.
+     *
+     * @return an immutable snapshot of all loaded users
+     * @since 1.5.18
+     */
+    public @NotNull List<USER> getCachedUsersSnapshot() {
+        int version = membershipVersion.get();
+        UserSnapshot<USER> current = snapshot;
+        if (current == null || current.version() != version) {
+            current = new UserSnapshot<>(version, List.copyOf(idToUser.values()));
+            snapshot = current;
+        }
+        return current.users();
+    }
+
     /**
      * Performs the given action for each element of the {@code Iterable}
      * until all elements have been processed or the action throws an
@@ -257,7 +783,26 @@ public abstract class UserCache<USER extends LoadableUser> implements Listener {
      * @since 1.2.4
      */
     public void forEach(@NotNull Consumer<USER> action) {
-        idToUser.values().forEach(action);
+        List<USER> users = getCachedUsersSnapshot();
+        for (int i = 0; i < users.size(); i++) {
+            action.accept(users.get(i));
+        }
+    }
+
+    /**
+     * Performs the given action for each loaded user in parallel and waits until all actions have completed.
+     * <br>
+     * <b>Threading contract:</b> the action is invoked concurrently by the threads of the common
+     * {@link java.util.concurrent.ForkJoinPool} and the calling thread. It therefore has to be thread-safe
+     * and must not access any Bukkit API that is restricted to the main thread. This is meant for CPU-heavy
+     * computations on user data; results should be applied afterwards on the calling thread.
+     * If an action throws an exception, it is rethrown by this method.
+     *
+     * @param action The action to be performed for each user
+     * @since 1.5.18
+     */
+    public void parallelForEach(@NotNull Consumer<USER> action) {
+        getCachedUsersSnapshot().parallelStream().forEach(action);
     }
 
     /**
@@ -269,6 +814,42 @@ public abstract class UserCache<USER extends LoadableUser> implements Listener {
         return idToUser.size();
     }
 
+    /**
+     * Returns the amount of cached users whose player is online.
+     *
+     * @return the amount of cached online users
+     * @since 1.5.18
+     */
+    public int getOnlineUsersAmount() {
+        int amount = 0;
+        for (UUID uuid : idToUser.keySet()) {
+            if (Bukkit.getPlayer(uuid) != null) {
+                amount++;
+            }
+        }
+        return amount;
+    }
+
+    /**
+     * Returns the amount of cached users whose player is offline and who will be unloaded after {@link #getUnloadAfter()}.
+     *
+     * @return the amount of cached offline users
+     * @since 1.5.18
+     */
+    public int getOfflineUsersAmount() {
+        return Math.max(0, idToUser.size() - getOnlineUsersAmount());
+    }
+
+    /**
+     * Returns the recorded lookups, load and save times and unloads of this cache.
+     *
+     * @return the statistics of this cache
+     * @since 1.5.18
+     */
+    public @NotNull UserCacheStatistics getStatistics() {
+        return statistics;
+    }
+
     /**
      * Returns the duration after which an offline player gets unloaded.
      *
@@ -289,6 +870,160 @@ public abstract class UserCache<USER extends LoadableUser> implements Listener {
         this.unloadAfter = unloadAfter;
     }
 
+    /**
+     * Returns the duration after which a user that was loaded by {@link #prefetch(Collection)} gets unloaded if its
+     * player doesn't join in the meantime.
+     *
+     * @return the duration in ticks, or a negative value if prefetched users aren't unloaded
+     * @since 1.5.18
+     */
+    public long getPrefetchUnloadAfter() {
+        return prefetchUnloadAfter;
+    }
+
+    /**
+     * Set the duration after which a user that was loaded by {@link #prefetch(Collection)} gets unloaded if its
+     * player doesn't join in the meantime. This is longer than {@link #getUnloadAfter()} by default, as prefetched
+     * users are usually loaded before their players join, e.g. after a restart.
+     *
+     * @param prefetchUnloadAfter the duration in ticks, or a negative value to keep prefetched users cached
+     * @since 1.5.18
+     */
+    public void setPrefetchUnloadAfter(long prefetchUnloadAfter) {
+        this.prefetchUnloadAfter = prefetchUnloadAfter;
+    }
+
+    /**
+     * Returns the journal whose users are evicted when they get unloaded, or null if none is set.
+     *
+     * @return the journal, or null
+     * @since 1.5.18
+     */
+    public @Nullable UserJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Sets the journal the users store their data in. Unloaded users are evicted from the journal,
+     * so that only the values of cached users are kept in memory.
+     *
+     * @param journal the journal, or null
+     * @since 1.5.18
+     */
+    public void setJournal(@Nullable UserJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Returns the name index used to resolve names, or null if none is enabled.
+     *
+     * @return the name index, or null
+     * @since 1.5.18
+     */
+    public @Nullable UserNameIndex getNameIndex() {
+        return nameIndex;
+    }
+
+    /**
+     * Enables a persistent, case-insensitive name index stored in the given file.
+     * The index is updated whenever a player joins and saved with {@link #saveAll()} and {@link #unloadAll()}.
+     *
+     * @param file the file to store the index in
+     * @return the enabled name index
+     * @since 1.5.18
+     */
+    public @NotNull UserNameIndex enableNameIndex(@NotNull File file) {
+        UserNameIndex index = new UserNameIndex(file);
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            index.update(player.getUniqueId(), player.getName());
+        }
+        this.nameIndex = index;
+        return index;
+    }
+
+    /**
+     * Enables warm restarts: the uuids of all cached users are written into the given file by {@link #unloadAll()},
+     * ordered by their access frequency. The users of an existing snapshot are loaded in the background right away
+     * with {@link #prefetch(Collection)}, so that they are already cached when their players join.
+     *
+     * @param file the snapshot file
+     * @param limit the maximum amount of users to store and load
+     * @return a future completing with the loaded users of the snapshot
+     * @since 1.5.18
+     */
+    public @NotNull CompletableFuture<Map<UUID, USER>> enableWarmRestart(@NotNull File file, int limit) {
+        this.warmRestartFile = file;
+        this.warmRestartLimit = limit;
+        List<UUID> uuids = readWarmRestartSnapshot();
+        if (uuids.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+        return prefetch(uuids);
+    }
+
+    /**
+     * Writes the uuids of the most frequently accessed cached users into the warm restart file.
+     * This does nothing if warm restarts aren't enabled.
+     *
+     * @see #enableWarmRestart(File, int)
+     * @since 1.5.18
+     */
+    public void saveWarmRestartSnapshot() {
+        if (warmRestartFile == null) {
+            return;
+        }
+        List<UUID> uuids = new ArrayList<>(idToUser.keySet());
+        uuids.sort(Comparator.comparingInt(this::getAccessCount).reversed());
+        int amount = Math.min(uuids.size(), warmRestartLimit);
+
+        Path target = warmRestartFile.toPath();
+        Path temp = target.resolveSibling(warmRestartFile.getName() + ".tmp");
+        try {
+            if (warmRestartFile.getParentFile() != null) {
+                warmRestartFile.getParentFile().mkdirs();
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(amount);
+                for (int i = 0; i < amount; i++) {
+                    UUID uuid = uuids.get(i);
+                    out.writeLong(uuid.getMostSignificantBits());
+                    out.writeLong(uuid.getLeastSignificantBits());
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            MessageUtil.log(plugin, "&4Could not save the user snapshot &6" + warmRestartFile.getPath() + "&4...");
+            e.printStackTrace();
+        }
+    }
+
+    private List<UUID> readWarmRestartSnapshot() {
+        if (!warmRestartFile.exists()) {
+            return List.of();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(warmRestartFile.toPath())))) {
+            int amount = Math.min(in.readInt(), warmRestartLimit);
+            List<UUID> uuids = new ArrayList<>(Math.max(amount, 0));
+            for (int i = 0; i < amount; i++) {
+                uuids.add(new UUID(in.readLong(), in.readLong()));
+            }
+            return uuids;
+        } catch (IOException e) {
+            MessageUtil.log(plugin, "&4Could not read the user snapshot &6" + warmRestartFile.getPath() + "&4...");
+            e.printStackTrace();
+            return List.of();
+        }
+    }
+
+    private int getAccessCount(UUID uuid) {
+        AtomicInteger count = accessCounts.get(uuid);
+        return count == null ? 0 : count.get();
+    }
+
     /* abstracts */
 
     /**
@@ -302,6 +1037,28 @@ public abstract class UserCache<USER extends LoadableUser> implements Listener {
      */
     protected abstract @Nullable USER getNewInstance(@NotNull OfflinePlayer player);
 
+    /**
+     * This method creates new user instances for all given players at once.
+     * It is called asynchronously by {@link #prefetch(Collection)} and should be overridden
+     * to load every user with a single bulk operation, e.g. one database query.
+     * <br>
+     * The default implementation calls {@link #getNewInstance(OfflinePlayer)} for every player.
+     *
+     * @param players the players to get the users for
+     * @return the new user objects mapped by their uuid, players without a user can be left out
+     * @since 1.5.18
+     */
+    protected @NotNull Map<UUID, USER> getNewInstances(@NotNull Collection<OfflinePlayer> players) {
+        Map<UUID, USER> users = new HashMap<>(players.size());
+        for (OfflinePlayer player : players) {
+            USER user = getNewInstance(player);
+            if (user != null) {
+                users.put(player.getUniqueId(), user);
+            }
+        }
+        return users;
+    }
+
     /* listener */
 
     @EventHandler
@@ -316,11 +1073,12 @@ public abstract class UserCache<USER extends LoadableUser> implements Listener {
         }
         USER user = idToUser.get(uuid);
         if (user != null) {
+            updateName(uuid, player.getName()); // the player might have changed their name while the user was cached
             user.updatePlayer(player);
             user.onJoin(event);
             return;
         }
-        load(player).onJoin(event);
+        load(player, true).onJoin(event);
     }
 
     @EventHandler
@@ -337,14 +1095,63 @@ public abstract class UserCache<USER extends LoadableUser> implements Listener {
             return;
         }
         if (unloadAfter == 0) {
-            unload(player);
+            unload(player, UserCacheStatistics.UnloadReason.QUIT);
             return;
         }
         scheduleUnloadTask(player);
     }
 
+    private void saveUser(USER user) {
+        long start = System.nanoTime();
+        user.saveUser();
+        statistics.getSaveTimes().record(System.nanoTime() - start);
+    }
+
+    private void recordLookup(UserCacheStatistics.Lookup lookup, UUID uuid, boolean hit) {
+        statistics.recordLookup(lookup, hit);
+        if (hit && warmRestartFile != null) {
+            accessCounts.computeIfAbsent(uuid, k -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    private void cache(UUID uuid, USER user) {
+        idToUser.put(uuid, user);
+        membershipVersion.incrementAndGet();
+        if (warmRestartFile != null) {
+            accessCounts.computeIfAbsent(uuid, k -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    private void uncache(UUID uuid) {
+        if (idToUser.remove(uuid) != null) {
+            membershipVersion.incrementAndGet();
+        }
+        accessCounts.remove(uuid);
+        if (journal != null) {
+            journal.evict(uuid);
+        }
+    }
+
     private void scheduleUnloadTask(OfflinePlayer player) {
-        BukkitTask task = Bukkit.getScheduler().runTaskLater(plugin, () -> unload(player), unloadAfter);
+        scheduleUnloadTask(player, unloadAfter);
+    }
+
+    private void scheduleUnloadTask(OfflinePlayer player, long delay) {
+        BukkitTask task = Bukkit.getScheduler().runTaskLater(plugin, () -> unload(player, UserCacheStatistics.UnloadReason.EXPIRED), delay);
         idToTask.put(player.getUniqueId(), task);
     }
+
+    private record UserSnapshot<U>(int version, List<U> users) {}
+
+    /**
+     * The pending load of a prefetched user, which is loaded by whichever thread claims it first.
+     */
+    private static final class PrefetchLoad<U> extends CompletableFuture<U> {
+
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
 }
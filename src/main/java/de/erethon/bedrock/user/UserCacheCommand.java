@@ -0,0 +1,84 @@
+package de.erethon.bedrock.user;
+
+import de.erethon.bedrock.chat.MessageUtil;
+import de.erethon.bedrock.command.ECommand;
+import de.erethon.bedrock.config.BedrockMessage;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * A debug command that shows the {@link UserCacheStatistics} of a {@link UserCache}.
+ * It can be added as a sub command to any plugin command.
+ * <br>
+ * Usage: {@code <command> [reset]}
+ *
+ * @since 1.5.18
+ */
+public class UserCacheCommand extends ECommand {
+
+    private final UserCache<?> cache;
+
+    public UserCacheCommand(@NotNull UserCache<?> cache, @NotNull String permission) {
+        this(cache, "usercache", permission);
+    }
+
+    public UserCacheCommand(@NotNull UserCache<?> cache, @NotNull String command, @NotNull String permission) {
+        this.cache = cache;
+        setCommand(command);
+        setMinMaxArgs(0, 1);
+        setUsage(command + " [reset]");
+        setDescription(BedrockMessage.USER_CACHE_DESCRIPTION.getMessage());
+        setDefaultHelp();
+        setPermission(permission);
+        setPlayerCommand(true);
+        setConsoleCommand(true);
+    }
+
+    @Override
+    public void onExecute(String[] args, CommandSender sender) {
+        UserCacheStatistics statistics = cache.getStatistics();
+        if (args.length == 2) {
+            assure(args[1].equalsIgnoreCase("reset"));
+            statistics.reset();
+            MessageUtil.sendMessage(sender, BedrockMessage.USER_CACHE_RESET.getMessage());
+            return;
+        }
+        long seconds = (System.currentTimeMillis() - statistics.getResetTime()) / 1000;
+        MessageUtil.sendCenteredMessage(sender, BedrockMessage.USER_CACHE_HEADER.getMessage(String.valueOf(seconds)));
+        MessageUtil.sendMessage(sender, BedrockMessage.USER_CACHE_CACHED.getMessage(String.valueOf(cache.getCachedUsersAmount()),
+                String.valueOf(cache.getOnlineUsersAmount()), String.valueOf(cache.getOfflineUsersAmount()), String.valueOf(cache.getUnloadAfter())));
+        for (UserCacheStatistics.Lookup lookup : UserCacheStatistics.Lookup.values()) {
+            MessageUtil.sendMessage(sender, BedrockMessage.USER_CACHE_LOOKUP.getMessage(lookup.name().toLowerCase(), String.valueOf(statistics.getHits(lookup)),
+                    String.valueOf(statistics.getMisses(lookup)), format(statistics.getHitRate(lookup) * 100)));
+        }
+        sendTimer(sender, BedrockMessage.USER_CACHE_LOAD, statistics.getLoadTimes());
+        sendTimer(sender, BedrockMessage.USER_CACHE_BATCH_LOAD, statistics.getBatchLoadTimes());
+        sendTimer(sender, BedrockMessage.USER_CACHE_SAVE, statistics.getSaveTimes());
+        sendTimer(sender, BedrockMessage.USER_CACHE_UNLOAD, statistics.getUnloadTimes());
+        StringBuilder unloads = new StringBuilder();
+        for (UserCacheStatistics.UnloadReason reason : UserCacheStatistics.UnloadReason.values()) {
+            unloads.append(" &7").append(reason.name().toLowerCase()).append("=").append(statistics.getUnloads(reason));
+        }
+        MessageUtil.sendMessage(sender, BedrockMessage.USER_CACHE_UNLOADS.getMessage(unloads.toString()));
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, String[] args) {
+        return args.length == 2 ? List.of("reset") : null;
+    }
+
+    private void sendTimer(CommandSender sender, BedrockMessage name, UserCacheStatistics.Timer timer) {
+        MessageUtil.sendMessage(sender, BedrockMessage.USER_CACHE_TIMER.getMessage(name.getMessage(), String.valueOf(timer.getCount()),
+                format(timer.getAverageMillis()), formatLimit(timer.getPercentileMillis(0.95)), format(timer.getMaxMillis())));
+    }
+
+    private static String format(double value) {
+        return String.format("%.2f", value);
+    }
+
+    private static String formatLimit(long limit) {
+        return limit == Long.MAX_VALUE ? "inf" : limit + "ms";
+    }
+}
@@ -0,0 +1,281 @@
+package de.erethon.bedrock.user;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the lookups, load and save times and unloads of a {@link UserCache}.
+ * <br>
+ * All counters are thread-safe and cheap to update, so they are recorded permanently.
+ *
+ * @since 1.5.18
+ */
+public class UserCacheStatistics {
+
+    private final LongAdder[] hits = newAdders(Lookup.values().length);
+    private final LongAdder[] misses = newAdders(Lookup.values().length);
+    private final LongAdder[] unloads = newAdders(UnloadReason.values().length);
+    private final Timer loadTimes = new Timer();
+    private final Timer batchLoadTimes = new Timer();
+    private final Timer unloadTimes = new Timer();
+    private final Timer saveTimes = new Timer();
+    private volatile long resetTime = System.currentTimeMillis();
+
+    void recordLookup(Lookup lookup, boolean hit) {
+        (hit ? hits : misses)[lookup.ordinal()].increment();
+    }
+
+    void recordUnload(UnloadReason reason) {
+        unloads[reason.ordinal()].increment();
+    }
+
+    /**
+     * Returns the amount of lookups of the given type that found a cached user.
+     *
+     * @param lookup the lookup type
+     * @return the amount of cache hits
+     */
+    public long getHits(@NotNull Lookup lookup) {
+        return hits[lookup.ordinal()].sum();
+    }
+
+    /**
+     * Returns the amount of lookups of the given type that didn't find a cached user.
+     *
+     * @param lookup the lookup type
+     * @return the amount of cache misses
+     */
+    public long getMisses(@NotNull Lookup lookup) {
+        return misses[lookup.ordinal()].sum();
+    }
+
+    /**
+     * Returns the hit rate of the given lookup type between 0 and 1.
+     *
+     * @param lookup the lookup type
+     * @return the hit rate, or 0 if no lookup was recorded yet
+     */
+    public double getHitRate(@NotNull Lookup lookup) {
+        long hit = getHits(lookup);
+        long total = hit + getMisses(lookup);
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * Returns the amount of users that were unloaded for the given reason.
+     *
+     * @param reason the unload reason
+     * @return the amount of unloaded users
+     */
+    public long getUnloads(@NotNull UnloadReason reason) {
+        return unloads[reason.ordinal()].sum();
+    }
+
+    /**
+     * @return the durations of {@link UserCache#getNewInstance(org.bukkit.OfflinePlayer)} calls
+     */
+    public @NotNull Timer getLoadTimes() {
+        return loadTimes;
+    }
+
+    /**
+     * @return the durations of {@link UserCache#getNewInstances(java.util.Collection)} calls
+     */
+    public @NotNull Timer getBatchLoadTimes() {
+        return batchLoadTimes;
+    }
+
+    /**
+     * @return the durations of user unloads, including the save
+     */
+    public @NotNull Timer getUnloadTimes() {
+        return unloadTimes;
+    }
+
+    /**
+     * @return the durations of {@link LoadableUser#saveUser()} calls
+     */
+    public @NotNull Timer getSaveTimes() {
+        return saveTimes;
+    }
+
+    /**
+     * @return the time in milliseconds since the statistics are recorded
+     */
+    public long getResetTime() {
+        return resetTime;
+    }
+
+    /**
+     * Resets all recorded values.
+     */
+    public void reset() {
+        for (LongAdder adder : hits) {
+            adder.reset();
+        }
+        for (LongAdder adder : misses) {
+            adder.reset();
+        }
+        for (LongAdder adder : unloads) {
+            adder.reset();
+        }
+        loadTimes.reset();
+        batchLoadTimes.reset();
+        unloadTimes.reset();
+        saveTimes.reset();
+        resetTime = System.currentTimeMillis();
+    }
+
+    private static LongAdder[] newAdders(int amount) {
+        LongAdder[] adders = new LongAdder[amount];
+        for (int i = 0; i < amount; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * The lookup methods of the {@link UserCache}.
+     */
+    public enum Lookup {
+        /**
+         * Lookups by uuid.
+         */
+        UNIQUE_ID,
+        /**
+         * Lookups by name.
+         */
+        NAME,
+        /**
+         * Lookups by player.
+         */
+        PLAYER
+    }
+
+    /**
+     * The reasons why a user was removed from the {@link UserCache}.
+     */
+    public enum UnloadReason {
+        /**
+         * The player quit and users are unloaded immediately.
+         */
+        QUIT,
+        /**
+         * The user wasn't online for the configured unload duration.
+         */
+        EXPIRED,
+        /**
+         * The user was unloaded by {@link UserCache#unloadAll()}.
+         */
+        UNLOAD_ALL,
+        /**
+         * The user was unloaded by {@link UserCache#reloadAll()}.
+         */
+        RELOAD,
+        /**
+         * The user was unloaded by a direct call of {@link UserCache#unload(org.bukkit.OfflinePlayer)}.
+         */
+        MANUAL
+    }
+
+    /**
+     * A thread-safe histogram of durations with fixed millisecond buckets.
+     */
+    public static class Timer {
+
+        private static final long[] BUCKET_LIMITS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, Long.MAX_VALUE}; // millis
+
+        private final LongAdder[] buckets = newAdders(BUCKET_LIMITS.length);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * Records the given duration.
+         *
+         * @param nanos the duration in nanoseconds
+         */
+        public void record(long nanos) {
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int i = 0;
+            while (millis >= BUCKET_LIMITS[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            count.increment();
+            total.add(nanos);
+            max.accumulateAndGet(nanos, Math::max);
+        }
+
+        /**
+         * @return the amount of recorded durations
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return the average duration in milliseconds
+         */
+        public double getAverageMillis() {
+            long amount = count.sum();
+            return amount == 0 ? 0 : total.sum() / 1_000_000D / amount;
+        }
+
+        /**
+         * @return the longest duration in milliseconds
+         */
+        public double getMaxMillis() {
+            return max.get() / 1_000_000D;
+        }
+
+        /**
+         * Returns the upper bucket limit in milliseconds below which the given share of durations lies.
+         *
+         * @param percentile the percentile between 0 and 1
+         * @return the upper bucket limit in milliseconds, or {@link Long#MAX_VALUE} if the last bucket is reached
+         */
+        public long getPercentileMillis(double percentile) {
+            long amount = count.sum();
+            long threshold = (long) Math.ceil(amount * percentile);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i].sum();
+                if (seen >= threshold) {
+                    return BUCKET_LIMITS[i];
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * @return the upper limits of the histogram buckets in milliseconds
+         */
+        public long[] getBucketLimits() {
+            return BUCKET_LIMITS.clone();
+        }
+
+        /**
+         * @return the amount of durations per histogram bucket
+         */
+        public long[] getBucketCounts() {
+            long[] counts = new long[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+            }
+            return counts;
+        }
+
+        void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            count.reset();
+            total.reset();
+            max.set(0);
+        }
+    }
+}
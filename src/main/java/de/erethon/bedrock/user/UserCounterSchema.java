@@ -0,0 +1,87 @@
+package de.erethon.bedrock.user;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Defines the counters a plugin stores per user in a {@link UserCounterStore}.
+ * Every counter gets a fixed slot, which should be resolved once and kept in a constant:
+ *
+ * <blockquote><pre>
+ *     static final UserCounterSchema SCHEMA = new UserCounterSchema("kills", "deaths", "playtime");
+ *     static final int KILLS = SCHEMA.slot("kills");
+ * </pre></blockquote>
+ *
+ * New counters have to be appended at the end, as the slots of existing counters must not change.
+ *
+ * @since 1.5.18
+ */
+public final class UserCounterSchema {
+
+    private final String[] names;
+    private final Map<String, Integer> slots;
+
+    public UserCounterSchema(@NotNull String... names) {
+        if (names.length == 0) {
+            throw new IllegalArgumentException("A counter schema needs at least one counter");
+        }
+        this.names = names.clone();
+        this.slots = new HashMap<>(names.length);
+        for (int i = 0; i < names.length; i++) {
+            if (slots.put(names[i], i) != null) {
+                throw new IllegalArgumentException("Duplicate counter '" + names[i] + "'");
+            }
+        }
+    }
+
+    /**
+     * Returns the slot of the given counter.
+     *
+     * @param name the name of the counter
+     * @return the slot of the counter
+     * @throws IllegalArgumentException if the schema doesn't contain the counter
+     */
+    public int slot(@NotNull String name) {
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            throw new IllegalArgumentException("Unknown counter '" + name + "'");
+        }
+        return slot;
+    }
+
+    /**
+     * @return the names of all counters, ordered by their slot
+     */
+    public @NotNull List<String> getNames() {
+        return Arrays.asList(names.clone());
+    }
+
+    /**
+     * @return the amount of counters
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns a 64-bit FNV-1a hash of the counter names and their order, which a {@link UserCounterStore} keeps in its
+     * header to detect files that were created with other counters.
+     *
+     * @return the hash of the counter names
+     */
+    long hash() {
+        long hash = 0xcbf29ce484222325L;
+        for (String name : names) {
+            for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+            }
+            hash = (hash ^ 0xff) * 0x100000001b3L; // separates the names, as 0xff never occurs in UTF-8
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,295 @@
+package de.erethon.bedrock.user;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A crash-safe store of primitive long counters per user, backed by a memory-mapped file.
+ * <br>
+ * Every user owns a fixed-width record containing its uuid and one slot per counter of the {@link UserCounterSchema}.
+ * Counter updates are atomic writes into the mapped file, so they neither allocate nor require a save cycle.
+ * The operating system writes the changes to disk, even if the server crashes. Call {@link #force()} or
+ * {@link #startForceTask(Plugin, long)} to additionally protect against power losses.
+ * <br>
+ * {@link LoadableUser} implementations can bind to their record once and update their counters through the handle:
+ *
+ * <blockquote><pre>
+ *     this.counters = store.bind(player.getUniqueId());
+ *     ...
+ *     counters.increment(KILLS);
+ * </pre></blockquote>
+ *
+ * @since 1.5.18
+ */
+public class UserCounterStore implements Closeable {
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final int MAGIC = 0x42434e54; // BCNT
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    private static final int COUNT_OFFSET = 16;
+    private static final int SCHEMA_HASH_OFFSET = 24;
+    private static final int UUID_SIZE = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final File file;
+    private final UserCounterSchema schema;
+    private final int recordSize;
+    private final FileChannel channel;
+    private final Map<UUID, Integer> index = new ConcurrentHashMap<>();
+    private volatile MappedByteBuffer buffer;
+    private int capacity;
+    private int count;
+
+    /**
+     * Opens the store at the given file, creating it if it doesn't exist.
+     *
+     * @param file the file to store the counters in
+     * @param schema the counters to store per user
+     * @throws IOException if the file can't be opened, has an unsupported version or was created with other counters
+     */
+    public UserCounterStore(@NotNull File file, @NotNull UserCounterSchema schema) throws IOException {
+        this.file = file;
+        this.schema = schema;
+        this.recordSize = UUID_SIZE + schema.size() * Long.BYTES;
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                create();
+            } else {
+                open();
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void create() throws IOException {
+        capacity = INITIAL_CAPACITY;
+        buffer = map(capacity);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, schema.size());
+        buffer.putLong(COUNT_OFFSET, 0);
+        buffer.putLong(SCHEMA_HASH_OFFSET, schema.hash());
+    }
+
+    private void open() throws IOException {
+        capacity = (int) Math.max(1, (channel.size() - HEADER_SIZE) / recordSize);
+        buffer = map(capacity);
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("File " + file.getPath() + " is not a counter store");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Counter store " + file.getPath() + " has the unsupported version " + version + ", expected " + VERSION);
+        }
+        int slots = buffer.getInt(8);
+        if (slots != schema.size()) {
+            throw new IOException("Counter store " + file.getPath() + " contains " + slots + " counters per user, but the schema defines " + schema.size());
+        }
+        if (buffer.getLong(SCHEMA_HASH_OFFSET) != schema.hash()) {
+            throw new IOException("Counter store " + file.getPath() + " was created with other counters than " + schema.getNames());
+        }
+        count = (int) Math.min(buffer.getLong(COUNT_OFFSET), capacity);
+        for (int record = 0; record < count; record++) {
+            int offset = offset(record);
+            index.put(new UUID(buffer.getLong(offset), buffer.getLong(offset + Long.BYTES)), record);
+        }
+    }
+
+    private MappedByteBuffer map(int records) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) records * recordSize);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        return mapped;
+    }
+
+    private int offset(int record) {
+        return HEADER_SIZE + record * recordSize;
+    }
+
+    private synchronized int allocate(UUID uuid) {
+        Integer existing = index.get(uuid);
+        if (existing != null) {
+            return existing;
+        }
+        if (count == capacity) {
+            grow();
+        }
+        int record = count++;
+        int offset = offset(record);
+        MappedByteBuffer buf = buffer;
+        buf.putLong(offset, uuid.getMostSignificantBits());
+        buf.putLong(offset + Long.BYTES, uuid.getLeastSignificantBits());
+        for (int slot = 0; slot < schema.size(); slot++) {
+            LONGS.setVolatile(buf, offset + UUID_SIZE + slot * Long.BYTES, 0L);
+        }
+        LONGS.setRelease(buf, COUNT_OFFSET, (long) count);
+        index.put(uuid, record);
+        return record;
+    }
+
+    private void grow() {
+        long maxRecords = (Integer.MAX_VALUE - HEADER_SIZE) / recordSize;
+        if (capacity >= maxRecords) {
+            throw new IllegalStateException("Counter store " + file.getPath() + " is full");
+        }
+        int newCapacity = (int) Math.min(maxRecords, capacity * 2L);
+        try {
+            // the old mapping shares the same file pages, so concurrent updates through it aren't lost
+            buffer = map(newCapacity);
+            capacity = newCapacity;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not grow counter store " + file.getPath(), e);
+        }
+    }
+
+    /**
+     * Returns a handle to the counters of the given user, creating its record if necessary.
+     * Handles should be kept by the user, as binding requires a hash lookup.
+     *
+     * @param uuid the uuid of the user
+     * @return a handle to the counters of the user
+     */
+    public @NotNull Counters bind(@NotNull UUID uuid) {
+        Integer record = index.get(uuid);
+        return new Counters(offset(record != null ? record : allocate(uuid)) + UUID_SIZE);
+    }
+
+    /**
+     * Returns a handle to the counters of the given user, if it has a record.
+     *
+     * @param uuid the uuid of the user
+     * @return a handle to the counters of the user, or null
+     */
+    public @Nullable Counters bindIfPresent(@NotNull UUID uuid) {
+        Integer record = index.get(uuid);
+        return record == null ? null : new Counters(offset(record) + UUID_SIZE);
+    }
+
+    /**
+     * @param uuid the uuid to check
+     * @return true if the user has a record, false otherwise
+     */
+    public boolean contains(@NotNull UUID uuid) {
+        return index.containsKey(uuid);
+    }
+
+    /**
+     * @return the amount of users with a record
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * @return the counter schema of this store
+     */
+    public @NotNull UserCounterSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Forces all changes to be written to the storage device.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * Starts an asynchronous task that calls {@link #force()} periodically.
+     *
+     * @param plugin the plugin to run the task with
+     * @param periodTicks the period in ticks
+     * @return the started task
+     */
+    public @NotNull BukkitTask startForceTask(@NotNull Plugin plugin, long periodTicks) {
+        return Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::force, periodTicks, periodTicks);
+    }
+
+    /**
+     * Forces all changes to the storage device and closes the file.
+     * Handles must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    /**
+     * A handle to the counters of a single user. Every operation is atomic and allocation-free.
+     */
+    public final class Counters {
+
+        private final int base;
+
+        private Counters(int base) {
+            this.base = base;
+        }
+
+        /**
+         * @param slot the counter slot
+         * @return the current value of the counter
+         */
+        public long get(int slot) {
+            return (long) LONGS.getVolatile(buffer, position(slot));
+        }
+
+        /**
+         * @param slot the counter slot
+         * @param value the new value of the counter
+         */
+        public void set(int slot, long value) {
+            LONGS.setVolatile(buffer, position(slot), value);
+        }
+
+        /**
+         * Adds the given delta to the counter.
+         *
+         * @param slot the counter slot
+         * @param delta the delta to add
+         * @return the new value of the counter
+         */
+        public long add(int slot, long delta) {
+            return (long) LONGS.getAndAdd(buffer, position(slot), delta) + delta;
+        }
+
+        /**
+         * Increments the counter by one.
+         *
+         * @param slot the counter slot
+         * @return the new value of the counter
+         */
+        public long increment(int slot) {
+            return add(slot, 1);
+        }
+
+        private int position(int slot) {
+            if (slot < 0 || slot >= schema.size()) {
+                throw new IndexOutOfBoundsException("Counter slot " + slot + " is out of bounds for " + schema.size() + " counters");
+            }
+            return base + slot * Long.BYTES;
+        }
+    }
+}
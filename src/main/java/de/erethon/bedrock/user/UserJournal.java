@@ -0,0 +1,898 @@
+package de.erethon.bedrock.user;
+
+import de.erethon.bedrock.chat.MessageUtil;
+import de.erethon.bedrock.misc.LongList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only, journaling store for user data.
+ * <br>
+ * Instead of rewriting a whole user file on every save, only the changed values are appended to the log of the
+ * user's shard. A background writer thread appends all queued changes at once and syncs every touched log a single
+ * time per batch (group commit). The futures returned by the write methods complete as soon as the change is durable,
+ * but callers never have to wait for them.
+ * <br>
+ * Opening the journal only indexes where the snapshot entry and the log records of every user are stored. The values
+ * of a user are read from the disk on the first access through these positions and are kept in memory afterwards, so
+ * loading a user costs a few positional reads instead of a scan of its shard. {@link #evict(UUID)} drops the values of
+ * a user from memory again, e.g. when the user is unloaded. Once a log grows beyond the compaction threshold, the shard
+ * starts a new log and the old snapshot and logs are merged into a new snapshot in the background, user by user, after
+ * which the old logs are deleted.
+ * <br>
+ * A {@link LoadableUser} could use it like this:
+ *
+ * <blockquote><pre>
+ *     // evict unloaded users
+ *     userCache.setJournal(journal);
+ *     // load
+ *     Map&lt;String, String&gt; data = journal.load(uuid);
+ *     // save, e.g. in saveUser() or right when the value changes
+ *     journal.set(uuid, "coins", String.valueOf(coins));
+ * </pre></blockquote>
+ *
+ * @since 1.5.18
+ */
+public class UserJournal implements Closeable {
+
+    private static final int SNAPSHOT_MAGIC = 0x424a534e; // BJSN
+    private static final byte OP_SET = 1;
+    private static final byte OP_REMOVE_KEY = 2;
+    private static final byte OP_REMOVE_USER = 3;
+    private static final int MAX_BATCH = 4096;
+    private static final int OFFSET_BITS = 40;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    private final File directory;
+    private final Shard[] shards;
+    private final long compactThreshold;
+    private final BlockingQueue<Change> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Bedrock-UserJournal-Compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * Opens the journal with 16 shards and a compaction threshold of 8 MiB per log.
+     *
+     * @param directory the directory to store the logs and snapshots in
+     * @throws IOException if the journal can't be opened
+     */
+    public UserJournal(@NotNull File directory) throws IOException {
+        this(directory, 16, 8L * 1024 * 1024);
+    }
+
+    /**
+     * Opens the journal and indexes the stored data.
+     *
+     * @param directory the directory to store the logs and snapshots in
+     * @param shards the amount of shards, which must not change for an existing journal
+     * @param compactThreshold the log size in bytes after which a shard gets compacted
+     * @throws IOException if the journal can't be opened
+     */
+    public UserJournal(@NotNull File directory, int shards, long compactThreshold) throws IOException {
+        this.directory = directory;
+        this.compactThreshold = compactThreshold;
+        this.shards = new Shard[shards];
+        directory.mkdirs();
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard(i);
+            this.shards[i].open();
+        }
+        this.writer = new Thread(this::writeLoop, "Bedrock-UserJournal-Writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /* read */
+
+    /**
+     * Returns the stored values of the given user.
+     *
+     * @param uuid the uuid of the user
+     * @return an immutable copy of the stored values, which is empty if no values are stored
+     */
+    public @NotNull Map<String, String> load(@NotNull UUID uuid) {
+        Shard shard = shard(uuid);
+        synchronized (shard) {
+            shard.evictRequested.remove(uuid);
+            shard.restore(uuid);
+            Map<String, String> values = shard.state.get(uuid);
+            return values == null ? Map.of() : Map.copyOf(values);
+        }
+    }
+
+    /**
+     * Returns the stored value of the given user.
+     *
+     * @param uuid the uuid of the user
+     * @param key the key of the value
+     * @return the stored value, or null
+     */
+    public @Nullable String get(@NotNull UUID uuid, @NotNull String key) {
+        Shard shard = shard(uuid);
+        synchronized (shard) {
+            shard.restore(uuid);
+            Map<String, String> values = shard.state.get(uuid);
+            return values == null ? null : values.get(key);
+        }
+    }
+
+    /* write */
+
+    /**
+     * Sets the value of the given user. A null value removes the key.
+     *
+     * @param uuid the uuid of the user
+     * @param key the key of the value
+     * @param value the value to set, or null
+     * @return a future completing once the change is durable
+     */
+    public @NotNull CompletableFuture<Void> set(@NotNull UUID uuid, @NotNull String key, @Nullable String value) {
+        return append(new Change(uuid, value == null ? OP_REMOVE_KEY : OP_SET, key, value));
+    }
+
+    /**
+     * Sets the given values of the user. Null values remove their key.
+     *
+     * @param uuid the uuid of the user
+     * @param values the values to set
+     * @return a future completing once all changes are durable
+     */
+    public @NotNull CompletableFuture<Void> setAll(@NotNull UUID uuid, @NotNull Map<String, String> values) {
+        if (values.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>(values.size());
+        values.forEach((key, value) -> futures.add(set(uuid, key, value)));
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Removes all values of the given user.
+     *
+     * @param uuid the uuid of the user
+     * @return a future completing once the removal is durable
+     */
+    public @NotNull CompletableFuture<Void> remove(@NotNull UUID uuid) {
+        return append(new Change(uuid, OP_REMOVE_USER, null, null));
+    }
+
+    /**
+     * Drops the values of the given user from memory as soon as all of its queued changes are durable.
+     * The values are read from the disk again on the next access.
+     *
+     * @param uuid the uuid of the user
+     */
+    public void evict(@NotNull UUID uuid) {
+        Shard shard = shard(uuid);
+        synchronized (shard) {
+            if (shard.pending.containsKey(uuid)) {
+                shard.evictRequested.add(uuid); // evicted by the writer once the changes are written
+            } else {
+                shard.evict(uuid);
+            }
+        }
+    }
+
+    private CompletableFuture<Void> append(Change change) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("The journal is closed"));
+        }
+        Shard shard = shard(change.uuid);
+        synchronized (shard) { // apply and enqueue in the same order
+            if (change.op != OP_REMOVE_USER && !shard.restore(change.uuid)) {
+                return CompletableFuture.failedFuture(new IOException("Could not read the values of " + change.uuid));
+            }
+            shard.apply(change);
+            shard.pending.merge(change.uuid, 1, Integer::sum);
+            queue.add(change);
+        }
+        // the writer may have exited in the meantime, in which case close() or this fails the change
+        if (!running && !writer.isAlive() && queue.remove(change)) {
+            change.future.completeExceptionally(new IllegalStateException("The journal is closed"));
+        }
+        return change.future;
+    }
+
+    /* writer */
+
+    private void writeLoop() {
+        List<Change> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Change first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                batch.removeIf(change -> change.uuid == null);
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                }
+                for (Shard shard : shards) {
+                    if (shard.requestRotation) {
+                        shard.rotate();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<Change> batch) {
+        Map<Shard, List<Change>> changes = new HashMap<>();
+        for (Change change : batch) {
+            changes.computeIfAbsent(shard(change.uuid), s -> new ArrayList<>()).add(change);
+        }
+        for (Map.Entry<Shard, List<Change>> entry : changes.entrySet()) {
+            Shard shard = entry.getKey();
+            List<Change> shardChanges = entry.getValue();
+            long offset = shard.logSize;
+            int generation = shard.generation;
+            long[] offsets = new long[shardChanges.size()];
+            IOException failure = null;
+            try {
+                ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+                for (int i = 0; i < shardChanges.size(); i++) {
+                    offsets[i] = offset + encoded.size();
+                    shardChanges.get(i).encode(encoded);
+                }
+                shard.write(encoded.toByteArray());
+                shard.log.force(false);
+            } catch (IOException e) {
+                MessageUtil.log("&4Could not write the user journal &6" + directory.getPath() + "&4...");
+                e.printStackTrace();
+                shard.discard(offset);
+                failure = e;
+            }
+            shard.written(shardChanges, generation, failure == null ? offsets : null);
+            for (Change change : shardChanges) {
+                if (failure == null) {
+                    change.future.complete(null);
+                } else {
+                    change.future.completeExceptionally(failure);
+                }
+            }
+            if (shard.logSize >= compactThreshold) {
+                shard.requestRotation = true;
+            }
+        }
+    }
+
+    /* lifecycle */
+
+    /**
+     * Starts a new log for every shard and writes their state into new snapshots in the background.
+     */
+    public void compact() {
+        for (Shard shard : shards) {
+            shard.requestRotation = true;
+        }
+        queue.add(new Change(null, (byte) 0, null, null)); // wakes up the writer
+    }
+
+    /**
+     * Waits until all queued changes are durable, stops the writer and closes the logs.
+     * Changes that are appended afterwards fail.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Change> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (Change change : remaining) {
+            change.future.completeExceptionally(new IllegalStateException("The journal is closed"));
+        }
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Shard shard : shards) {
+            shard.log.close();
+        }
+    }
+
+    private Shard shard(UUID uuid) {
+        return shards[Math.floorMod(uuid.hashCode(), shards.length)];
+    }
+
+    /* io helpers */
+
+    /**
+     * @return the amount of written bytes
+     */
+    private static int writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return Integer.BYTES + bytes.length;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void skipFully(DataInputStream in, int length, File file) throws IOException {
+        if (in.skipBytes(length) != length) {
+            throw new EOFException("Unexpected end of " + file.getPath());
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of the log at " + position);
+            }
+        }
+    }
+
+    private static long location(int generation, long offset) {
+        if (offset > OFFSET_MASK) {
+            throw new IllegalStateException("The log is too large to be indexed");
+        }
+        return (long) generation << OFFSET_BITS | offset;
+    }
+
+    private static int generation(long location) {
+        return (int) (location >>> OFFSET_BITS);
+    }
+
+    private static long offset(long location) {
+        return location & OFFSET_MASK;
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private final class Shard {
+
+        private final int id;
+        private final Map<UUID, Map<String, String>> state = new HashMap<>(); // the values of the users in memory
+        private final Map<UUID, UserIndex> index = new HashMap<>(); // where the values of every user are stored
+        private final Set<UUID> evictRequested = new HashSet<>();
+        private final Map<UUID, Integer> pending = new HashMap<>(); // queued changes, which aren't written yet
+        private FileChannel log;
+        private long logSize;
+        private int generation;
+        private volatile boolean requestRotation;
+
+        private Shard(int id) {
+            this.id = id;
+        }
+
+        private File snapshotFile() {
+            return new File(directory, "shard-" + id + ".snapshot");
+        }
+
+        private File logFile(int generation) {
+            return new File(directory, "shard-" + id + "-" + generation + ".log");
+        }
+
+        private TreeMap<Integer, File> logs() {
+            TreeMap<Integer, File> logs = new TreeMap<>();
+            String prefix = "shard-" + id + "-";
+            File[] files = directory.listFiles((dir, name) -> name.startsWith(prefix) && name.endsWith(".log"));
+            if (files != null) {
+                for (File file : files) {
+                    try {
+                        logs.put(Integer.parseInt(file.getName().substring(prefix.length(), file.getName().length() - 4)), file);
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+            return logs;
+        }
+
+        private void open() throws IOException {
+            int snapshotGeneration = indexSnapshot();
+            TreeMap<Integer, File> logs = logs();
+            for (Map.Entry<Integer, File> entry : logs.entrySet()) {
+                if (entry.getKey() < snapshotGeneration || entry.getValue().length() == 0) {
+                    Files.deleteIfExists(entry.getValue().toPath());
+                } else {
+                    indexLog(entry.getKey(), entry.getValue());
+                }
+            }
+            // every start writes into a new log, so that a torn record at the end of an old log is never continued
+            generation = Math.max(snapshotGeneration, logs.isEmpty() ? 0 : logs.lastKey()) + 1;
+            log = openLog(generation);
+        }
+
+        private FileChannel openLog(int generation) throws IOException {
+            logSize = 0;
+            return FileChannel.open(logFile(generation).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+
+        /**
+         * Indexes the position of every user's entry in the snapshot, without keeping the values.
+         *
+         * @return the generation of the snapshot
+         */
+        private int indexSnapshot() throws IOException {
+            File file = snapshotFile();
+            if (!file.exists()) {
+                return 0;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+                if (in.readInt() != SNAPSHOT_MAGIC) {
+                    throw new IOException("File " + file.getPath() + " is not a journal snapshot");
+                }
+                int snapshotGeneration = in.readInt();
+                int users = in.readInt();
+                long position = 3 * Integer.BYTES;
+                for (int i = 0; i < users; i++) {
+                    long offset = position;
+                    UUID uuid = new UUID(in.readLong(), in.readLong());
+                    int entries = in.readInt();
+                    if (entries < 0) {
+                        throw new IOException("Invalid entry count " + entries + " in " + file.getPath());
+                    }
+                    position += 2 * Long.BYTES + Integer.BYTES;
+                    for (int j = 0; j < entries * 2; j++) { // keys and values
+                        int length = in.readInt();
+                        if (length < 0) {
+                            throw new IOException("Invalid string length " + length + " in " + file.getPath());
+                        }
+                        skipFully(in, length, file);
+                        position += Integer.BYTES + length;
+                    }
+                    index.computeIfAbsent(uuid, k -> new UserIndex()).snapshotOffset = offset;
+                }
+                return snapshotGeneration;
+            }
+        }
+
+        /**
+         * Indexes the records of a log from a previous start, until the end of the log or the first invalid record.
+         * The log isn't written anymore, so an incomplete record at its end was torn by a crash.
+         */
+        private void indexLog(int logGeneration, File file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)))) {
+                long size = channel.size();
+                long position = 0;
+                CRC32 crc = new CRC32();
+                while (true) {
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException e) {
+                        return;
+                    }
+                    long start = position;
+                    position += Integer.BYTES;
+                    if (length < 0 || length > size - position - Long.BYTES) {
+                        MessageUtil.log("&6Ignoring a record with an invalid length at the end of &e" + file.getPath());
+                        return;
+                    }
+                    byte[] record = new byte[length];
+                    long checksum;
+                    try {
+                        in.readFully(record);
+                        checksum = in.readLong();
+                    } catch (EOFException e) {
+                        MessageUtil.log("&6Ignoring a torn record at the end of &e" + file.getPath());
+                        return;
+                    }
+                    position += length + Long.BYTES;
+                    crc.reset();
+                    crc.update(record);
+                    if (crc.getValue() != checksum) {
+                        MessageUtil.log("&6Ignoring a corrupted record at the end of &e" + file.getPath());
+                        return;
+                    }
+                    index(Change.decode(record), location(logGeneration, start));
+                }
+            }
+        }
+
+        private void index(Change change, long location) {
+            UserIndex entry = index.computeIfAbsent(change.uuid, k -> new UserIndex());
+            if (change.op == OP_REMOVE_USER) { // the previous values don't have to be read anymore
+                entry.snapshotOffset = -1;
+                entry.records.clear();
+            }
+            entry.records.add(location);
+        }
+
+        /**
+         * Reads the values of a user from the snapshot and the logs, at the indexed positions.
+         */
+        private void read(UserIndex entry, Map<String, String> values, Readers readers) throws IOException {
+            if (entry.snapshotOffset >= 0) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(readers.snapshot().position(entry.snapshotOffset))));
+                in.readLong(); // uuid
+                in.readLong();
+                int entries = in.readInt();
+                for (int i = 0; i < entries; i++) {
+                    values.put(readString(in), readString(in));
+                }
+            }
+            for (int i = 0; i < entry.records.size(); i++) {
+                long location = entry.records.get(i);
+                FileChannel channel = readers.log(generation(location));
+                ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+                readFully(channel, length, offset(location));
+                ByteBuffer record = ByteBuffer.allocate(length.getInt(0));
+                readFully(channel, record, offset(location) + Integer.BYTES);
+                apply(values, Change.decode(record.array()));
+            }
+        }
+
+        private void apply(Change change) {
+            apply(state.computeIfAbsent(change.uuid, k -> new HashMap<>()), change);
+        }
+
+        private static void apply(Map<String, String> values, Change change) {
+            switch (change.op) {
+                case OP_SET -> values.put(change.key, change.value);
+                case OP_REMOVE_KEY -> values.remove(change.key);
+                case OP_REMOVE_USER -> values.clear();
+                default -> {
+                }
+            }
+        }
+
+        /**
+         * Reads the values of a user that isn't in memory from the disk. Has to be called while holding the lock of
+         * this shard.
+         *
+         * @return false if the values couldn't be read, true otherwise
+         */
+        private boolean restore(UUID uuid) {
+            if (state.containsKey(uuid)) {
+                return true;
+            }
+            // users that aren't in memory have no pending changes, so their indexed values are complete
+            UserIndex entry = index.get(uuid);
+            if (entry == null) {
+                return true;
+            }
+            Map<String, String> values = new HashMap<>();
+            try (Readers readers = new Readers()) {
+                read(entry, values, readers);
+            } catch (IOException e) {
+                MessageUtil.log("&4Could not read the values of &6" + uuid + "&4 from shard &6" + id + "&4...");
+                e.printStackTrace();
+                return false;
+            }
+            state.put(uuid, values);
+            return true;
+        }
+
+        private void evict(UUID uuid) {
+            evictRequested.remove(uuid);
+            state.remove(uuid);
+        }
+
+        /**
+         * Called by the writer thread after the changes were written or discarded.
+         *
+         * @param offsets the offsets of the written records in the log of the given generation, or null if the
+         *                changes were discarded
+         */
+        private synchronized void written(List<Change> changes, int logGeneration, long[] offsets) {
+            for (int i = 0; i < changes.size(); i++) {
+                Change change = changes.get(i);
+                if (offsets != null) {
+                    index(change, location(logGeneration, offsets[i]));
+                }
+                Integer left = pending.merge(change.uuid, -1, Integer::sum);
+                if (left != null && left <= 0) {
+                    pending.remove(change.uuid);
+                    if (evictRequested.contains(change.uuid)) {
+                        evict(change.uuid);
+                    }
+                }
+            }
+        }
+
+        private void write(byte[] bytes) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                logSize += log.write(buffer);
+            }
+        }
+
+        /**
+         * Called by the writer thread after a failed write: cuts the log back to the end of the last complete batch,
+         * or starts a new log if that fails, so that no record is ever appended behind a partial one.
+         */
+        private void discard(long offset) {
+            try {
+                log.truncate(offset);
+                logSize = offset;
+                return;
+            } catch (IOException e) {
+                MessageUtil.log("&4Could not truncate the log of shard &6" + id + "&4, starting a new one...");
+                e.printStackTrace();
+            }
+            try {
+                synchronized (this) {
+                    try {
+                        log.close();
+                    } catch (IOException ignored) {
+                    }
+                    log = openLog(++generation);
+                }
+            } catch (IOException e) {
+                MessageUtil.log("&4Could not start a new log for shard &6" + id + "&4...");
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * Called by the writer thread: switches to a new log and merges the old snapshot and logs into a new snapshot.
+         */
+        private void rotate() {
+            requestRotation = false;
+            int snapshotGeneration;
+            try {
+                synchronized (this) {
+                    log.close();
+                    snapshotGeneration = ++generation;
+                    log = openLog(snapshotGeneration);
+                }
+            } catch (IOException e) {
+                MessageUtil.log("&4Could not start a new log for shard &6" + id + "&4...");
+                e.printStackTrace();
+                return;
+            }
+            compactor.execute(() -> writeSnapshot(snapshotGeneration));
+        }
+
+        /**
+         * Writes the values of every user that are stored in the snapshot and the logs before the given generation
+         * into a new snapshot. The users are read one by one through the index, including evicted users, so that only
+         * a single user is kept in memory at a time.
+         */
+        private void writeSnapshot(int snapshotGeneration) {
+            File file = snapshotFile();
+            Path temp = file.toPath().resolveSibling(file.getName() + ".tmp");
+            Map<UUID, UserIndex> users = new HashMap<>();
+            synchronized (this) {
+                index.forEach((uuid, entry) -> {
+                    UserIndex compacted = entry.before(snapshotGeneration);
+                    if (!compacted.isEmpty()) {
+                        users.put(uuid, compacted);
+                    }
+                });
+            }
+            Map<UUID, Long> offsets = new HashMap<>(users.size());
+            try {
+                // the old snapshot and logs are only replaced or deleted by this thread, so they can be read unlocked
+                try (Readers readers = new Readers();
+                     FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                     DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+                    out.writeInt(SNAPSHOT_MAGIC);
+                    out.writeInt(snapshotGeneration);
+                    out.writeInt(0); // the amount of users, which is set once they are written
+                    long position = 3 * Integer.BYTES;
+                    for (Map.Entry<UUID, UserIndex> user : users.entrySet()) {
+                        Map<String, String> values = new HashMap<>();
+                        read(user.getValue(), values, readers);
+                        if (values.isEmpty()) {
+                            continue;
+                        }
+                        offsets.put(user.getKey(), position);
+                        out.writeLong(user.getKey().getMostSignificantBits());
+                        out.writeLong(user.getKey().getLeastSignificantBits());
+                        out.writeInt(values.size());
+                        position += 2 * Long.BYTES + Integer.BYTES;
+                        for (Map.Entry<String, String> value : values.entrySet()) {
+                            position += writeString(out, value.getKey());
+                            position += writeString(out, value.getValue());
+                        }
+                    }
+                    out.flush();
+                    channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, offsets.size()), 2 * Integer.BYTES);
+                    channel.force(true);
+                }
+                synchronized (this) { // restore() must not see the new snapshot together with the old logs or index
+                    move(temp, file.toPath());
+                    for (File old : logs().headMap(snapshotGeneration).values()) {
+                        Files.deleteIfExists(old.toPath());
+                    }
+                    for (UUID uuid : users.keySet()) {
+                        UserIndex entry = index.get(uuid);
+                        if (entry == null) {
+                            continue;
+                        }
+                        entry.compacted(offsets.getOrDefault(uuid, -1L), snapshotGeneration);
+                        if (entry.isEmpty()) {
+                            index.remove(uuid);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                MessageUtil.log("&4Could not write the snapshot of shard &6" + id + "&4...");
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * Opens the snapshot and the logs of this shard for reading on demand and closes them together.
+         */
+        private final class Readers implements Closeable {
+
+            private FileChannel snapshot;
+            private final Map<Integer, FileChannel> logs = new HashMap<>();
+
+            private FileChannel snapshot() throws IOException {
+                if (snapshot == null) {
+                    snapshot = FileChannel.open(snapshotFile().toPath(), StandardOpenOption.READ);
+                }
+                return snapshot;
+            }
+
+            private FileChannel log(int logGeneration) throws IOException {
+                FileChannel channel = logs.get(logGeneration);
+                if (channel == null) {
+                    channel = FileChannel.open(logFile(logGeneration).toPath(), StandardOpenOption.READ);
+                    logs.put(logGeneration, channel);
+                }
+                return channel;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (snapshot != null) {
+                    snapshot.close();
+                }
+                for (FileChannel channel : logs.values()) {
+                    channel.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * The position of a user's entry in the snapshot and of its log records that were written afterwards.
+     */
+    private static final class UserIndex {
+
+        private long snapshotOffset = -1;
+        private final LongList records = new LongList(2);
+
+        private boolean isEmpty() {
+            return snapshotOffset < 0 && records.isEmpty();
+        }
+
+        /**
+         * @return a copy containing the snapshot entry and the records of the logs before the given generation
+         */
+        private UserIndex before(int logGeneration) {
+            UserIndex copy = new UserIndex();
+            copy.snapshotOffset = snapshotOffset;
+            for (int i = 0; i < records.size(); i++) {
+                if (generation(records.get(i)) < logGeneration) {
+                    copy.records.add(records.get(i));
+                }
+            }
+            return copy;
+        }
+
+        /**
+         * Points to the entry in a new snapshot, which replaces the records of the logs before the given generation.
+         */
+        private void compacted(long snapshotOffset, int logGeneration) {
+            this.snapshotOffset = snapshotOffset;
+            LongList kept = new LongList(records.size());
+            for (int i = 0; i < records.size(); i++) {
+                if (generation(records.get(i)) >= logGeneration) {
+                    kept.add(records.get(i));
+                }
+            }
+            records.clear();
+            records.addAll(kept);
+        }
+    }
+
+    private static final class Change {
+
+        private final UUID uuid;
+        private final byte op;
+        private final String key;
+        private final String value;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Change(UUID uuid, byte op, String key, String value) {
+            this.uuid = uuid;
+            this.op = op;
+            this.key = key;
+            this.value = value;
+        }
+
+        private void encode(ByteArrayOutputStream target) throws IOException {
+            ByteArrayOutputStream record = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(record);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+            out.writeByte(op);
+            if (op != OP_REMOVE_USER) {
+                writeString(out, key);
+            }
+            if (op == OP_SET) {
+                writeString(out, value);
+            }
+            byte[] bytes = record.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            DataOutputStream targetOut = new DataOutputStream(target);
+            targetOut.writeInt(bytes.length);
+            targetOut.write(bytes);
+            targetOut.writeLong(crc.getValue());
+        }
+
+        private static Change decode(byte[] record) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+            UUID uuid = new UUID(in.readLong(), in.readLong());
+            byte op = in.readByte();
+            String key = op != OP_REMOVE_USER ? readString(in) : null;
+            String value = op == OP_SET ? readString(in) : null;
+            return new Change(uuid, op, key, value);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package de.erethon.bedrock.user;
+
+import de.erethon.bedrock.chat.MessageUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A persistent, case-insensitive index of player names and their uuids.
+ * <br>
+ * The index is kept in memory and allows name lookups and prefix searches without
+ * querying {@link org.bukkit.Bukkit#getOfflinePlayer(String)}, which might block on disk or on a profile lookup.
+ * Every entry is stored as a single {@code uuid:name} line in the index file.
+ *
+ * @since 1.5.18
+ */
+public class UserNameIndex {
+
+    private static final char SEPARATOR = ':';
+
+    private final File file;
+    private final NavigableMap<String, UUID> nameToId = new ConcurrentSkipListMap<>();
+    private final Map<UUID, String> idToName = new ConcurrentHashMap<>();
+    private volatile boolean changed;
+
+    /**
+     * Creates a new index and loads the entries of the given file, if it exists.
+     *
+     * @param file the file to store the index in
+     */
+    public UserNameIndex(@NotNull File file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * Loads the entries of the index file. Already present entries are kept.
+     */
+    public void load() {
+        if (!file.exists()) {
+            return;
+        }
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            MessageUtil.log("&4Could not load the name index &6" + file.getPath() + "&4...");
+            e.printStackTrace();
+            return;
+        }
+        for (String line : lines) {
+            int separator = line.indexOf(SEPARATOR);
+            if (separator <= 0 || separator == line.length() - 1) {
+                continue;
+            }
+            try {
+                update(UUID.fromString(line.substring(0, separator)), line.substring(separator + 1));
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        changed = false;
+    }
+
+    /**
+     * Saves the index into its file, if anything changed since the last save.
+     * The file is replaced atomically, so that a crash while saving can't corrupt it.
+     */
+    public void save() {
+        if (!changed) {
+            return;
+        }
+        changed = false;
+        StringBuilder sb = new StringBuilder(idToName.size() * 54);
+        for (Map.Entry<UUID, String> entry : idToName.entrySet()) {
+            sb.append(entry.getKey()).append(SEPARATOR).append(entry.getValue()).append('\n');
+        }
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(file.getName() + ".tmp");
+        try {
+            if (file.getParentFile() != null) {
+                file.getParentFile().mkdirs();
+            }
+            Files.writeString(temp, sb, StandardCharsets.UTF_8);
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            changed = true;
+            MessageUtil.log("&4Could not save the name index &6" + file.getPath() + "&4...");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Sets the current name of the given uuid. A previous name of the uuid will be removed from the index.
+     *
+     * @param uuid the uuid of the player
+     * @param name the current name of the player
+     */
+    public void update(@NotNull UUID uuid, @NotNull String name) {
+        String previous = idToName.put(uuid, name);
+        if (name.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            nameToId.remove(toKey(previous), uuid);
+        }
+        nameToId.put(toKey(name), uuid);
+        changed = true;
+    }
+
+    /**
+     * Removes the given uuid from the index.
+     *
+     * @param uuid the uuid to remove
+     */
+    public void remove(@NotNull UUID uuid) {
+        String name = idToName.remove(uuid);
+        if (name != null) {
+            nameToId.remove(toKey(name), uuid);
+            changed = true;
+        }
+    }
+
+    /**
+     * Returns the uuid of the given name, ignoring its case.
+     *
+     * @param name the name to get the uuid for
+     * @return the uuid of the given name, or null
+     */
+    public @Nullable UUID getUniqueId(@NotNull String name) {
+        return nameToId.get(toKey(name));
+    }
+
+    /**
+     * Returns the last known name of the given uuid.
+     *
+     * @param uuid the uuid to get the name for
+     * @return the last known name of the given uuid, or null
+     */
+    public @Nullable String getName(@NotNull UUID uuid) {
+        return idToName.get(uuid);
+    }
+
+    /**
+     * Returns the names starting with the given prefix, ignoring its case.
+     * The names are sorted alphabetically and keep their original case.
+     *
+     * @param prefix the prefix to search for
+     * @param limit the maximum amount of names to return
+     * @return a List of names starting with the given prefix
+     */
+    public @NotNull List<String> complete(@NotNull String prefix, int limit) {
+        String key = toKey(prefix);
+        List<String> names = new ArrayList<>(Math.min(limit, 16));
+        for (UUID uuid : nameToId.subMap(key, true, key + Character.MAX_VALUE, false).values()) {
+            if (names.size() >= limit) {
+                break;
+            }
+            String name = idToName.get(uuid);
+            if (name != null) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return the amount of indexed names
+     */
+    public int size() {
+        return idToName.size();
+    }
+
+    /**
+     * @return the file the index is stored in
+     */
+    public @NotNull File getFile() {
+        return file;
+    }
+
+    private static String toKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
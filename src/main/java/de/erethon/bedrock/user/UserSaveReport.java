@@ -0,0 +1,27 @@
+package de.erethon.bedrock.user;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The result of a parallel save of {@link LoadableUser}s.
+ *
+ * @param saved the amount of successfully saved users
+ * @param failed the users whose save threw an exception, mapped to the exception
+ * @param timedOut the users whose save didn't complete before the deadline
+ * @param duration the time it took to save the users or to reach the deadline
+ * @since 1.5.18
+ */
+public record UserSaveReport(int saved, @NotNull Map<UUID, Throwable> failed, @NotNull Set<UUID> timedOut, @NotNull Duration duration) {
+
+    /**
+     * @return true if every user was saved successfully, false otherwise
+     */
+    public boolean isComplete() {
+        return failed.isEmpty() && timedOut.isEmpty();
+    }
+}